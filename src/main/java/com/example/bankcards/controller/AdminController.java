@@ -1,15 +1,24 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.card.CardBalanceDto;
+import com.example.bankcards.dto.card.DailySpendMismatchDto;
 import com.example.bankcards.dto.common.ApiResponse;
 import com.example.bankcards.dto.user.UserDto;
+import com.example.bankcards.service.DailySpendService;
+import com.example.bankcards.service.LedgerService;
 import com.example.bankcards.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/admin")
 @RequiredArgsConstructor
@@ -18,6 +27,8 @@ import org.springframework.web.bind.annotation.*;
 public class AdminController {
 
     private final UserService userService;
+    private final DailySpendService dailySpendService;
+    private final LedgerService ledgerService;
 
     @PutMapping("/users/{userId}/status")
     @Operation(summary = "Toggle user status", description = "Activate or deactivate user account")
@@ -63,4 +74,49 @@ public class AdminController {
         userService.deleteUser(userId);
         return ResponseEntity.ok(ApiResponse.success("User deleted successfully", null));
     }
-}
\ No newline at end of file
+
+    @PostMapping("/daily-spend/backfill")
+    @Operation(summary = "Backfill daily spend", description = "Recompute daily spend counters for a range of days")
+    public ResponseEntity<ApiResponse<Integer>> backfillDailySpend(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int rows = dailySpendService.backfill(from, to);
+        return ResponseEntity.ok(ApiResponse.success("Daily spend counters rebuilt", rows));
+    }
+
+    @GetMapping("/daily-spend/consistency")
+    @Operation(summary = "Check daily spend", description = "Compare daily spend counters with transaction sums")
+    public ResponseEntity<ApiResponse<List<DailySpendMismatchDto>>> checkDailySpend(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        List<DailySpendMismatchDto> mismatches = dailySpendService.findMismatches(day);
+        return ResponseEntity.ok(ApiResponse.success(mismatches));
+    }
+
+    @GetMapping("/ledger/cards/{cardId}/balance")
+    @Operation(summary = "Get ledger balance", description = "Card balance from the ledger at a point in time")
+    public ResponseEntity<ApiResponse<CardBalanceDto>> getLedgerBalance(
+            @PathVariable Long cardId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        LocalDateTime pointInTime = asOf != null ? asOf : LocalDateTime.now();
+        CardBalanceDto balance = CardBalanceDto.builder()
+                .cardId(cardId)
+                .asOf(pointInTime)
+                .balance(ledgerService.getBalanceAsOf(cardId, pointInTime))
+                .build();
+        return ResponseEntity.ok(ApiResponse.success(balance));
+    }
+
+    @PostMapping("/ledger/snapshots")
+    @Operation(summary = "Snapshot balances", description = "Write card balance snapshots now")
+    public ResponseEntity<ApiResponse<Integer>> takeBalanceSnapshots() {
+        int rows = ledgerService.takeSnapshots();
+        return ResponseEntity.ok(ApiResponse.success("Balance snapshots written", rows));
+    }
+
+    @PostMapping("/ledger/sync-card-balances")
+    @Operation(summary = "Sync card balances", description = "Overwrite card balances with the ledger balances")
+    public ResponseEntity<ApiResponse<Integer>> syncCardBalances() {
+        int rows = ledgerService.syncCardBalances();
+        return ResponseEntity.ok(ApiResponse.success("Card balances synchronized", rows));
+    }
+}
@@ -2,15 +2,15 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.auth.*;
 import com.example.bankcards.dto.common.ApiResponse;
+import com.example.bankcards.security.CurrentUser;
 import com.example.bankcards.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -46,16 +46,20 @@ public class AuthController {
     @PostMapping("/change-password")
     @Operation(summary = "Change password", description = "Change user password")
     public ResponseEntity<ApiResponse<Void>> changePassword(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
             @Valid @RequestBody ChangePasswordRequest request) {
-        authService.changePassword(userDetails.getUsername(), request);
+        authService.changePassword(currentUser, request);
         return ResponseEntity.ok(ApiResponse.success("Password changed successfully", null));
     }
 
     @PostMapping("/logout")
-    @Operation(summary = "Logout", description = "Logout current user")
-    public ResponseEntity<ApiResponse<Void>> logout() {
-        // JWT is stateless, logout is handled on client side
+    @Operation(summary = "Logout", description = "Revoke the access token and, if given, the refresh token")
+    public ResponseEntity<ApiResponse<Void>> logout(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestBody(required = false) LogoutRequest request) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ") ?
+                authorization.substring(7) : null;
+        authService.logout(accessToken, request != null ? request.getRefreshToken() : null);
         return ResponseEntity.ok(ApiResponse.success("Logout successful", null));
     }
 }
\ No newline at end of file
@@ -3,8 +3,10 @@ package com.example.bankcards.controller;
 import com.example.bankcards.dto.card.*;
 import com.example.bankcards.dto.common.ApiResponse;
 import com.example.bankcards.dto.common.PageResponse;
+import com.example.bankcards.security.CurrentUser;
 import com.example.bankcards.service.CardService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,8 +16,6 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -32,9 +32,9 @@ public class CardController {
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Create card", description = "Create a new card for user (Admin only)")
     public ResponseEntity<ApiResponse<CardDto>> createCard(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
             @Valid @RequestBody CreateCardRequest request) {
-        CardDto card = cardService.createCard(userDetails.getUsername(), request);
+        CardDto card = cardService.createCard(currentUser, request);
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Card created successfully", card));
     }
@@ -43,8 +43,8 @@ public class CardController {
     @Operation(summary = "Get card by ID", description = "Get card information by ID")
     public ResponseEntity<ApiResponse<CardDto>> getCardById(
             @PathVariable Long cardId,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        CardDto card = cardService.getCardById(cardId, userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        CardDto card = cardService.getCardById(cardId, currentUser);
         return ResponseEntity.ok(ApiResponse.success(card));
     }
 
@@ -52,36 +52,36 @@ public class CardController {
     @Operation(summary = "Get card details", description = "Get detailed card information")
     public ResponseEntity<ApiResponse<CardDetailsDto>> getCardDetails(
             @PathVariable Long cardId,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        CardDetailsDto cardDetails = cardService.getCardDetails(cardId, userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        CardDetailsDto cardDetails = cardService.getCardDetails(cardId, currentUser);
         return ResponseEntity.ok(ApiResponse.success(cardDetails));
     }
 
     @GetMapping("/my-cards")
     @Operation(summary = "Get my cards", description = "Get all cards for current user")
     public ResponseEntity<ApiResponse<PageResponse<CardDto>>> getMyCards(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
             @PageableDefault(size = 20, sort = "createdAt", direction = Sort.Direction.DESC) Pageable pageable) {
-        PageResponse<CardDto> cards = cardService.getUserCards(userDetails.getUsername(), pageable);
+        PageResponse<CardDto> cards = cardService.getUserCards(currentUser, pageable);
         return ResponseEntity.ok(ApiResponse.success(cards));
     }
 
     @GetMapping("/my-cards/active")
     @Operation(summary = "Get active cards", description = "Get all active cards for current user")
     public ResponseEntity<ApiResponse<List<CardDto>>> getMyActiveCards(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        List<CardDto> cards = cardService.getActiveUserCards(userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        List<CardDto> cards = cardService.getActiveUserCards(currentUser);
         return ResponseEntity.ok(ApiResponse.success(cards));
     }
 
     @GetMapping("/my-cards/search")
     @Operation(summary = "Search my cards", description = "Search current user's cards")
     public ResponseEntity<ApiResponse<PageResponse<CardDto>>> searchMyCards(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
             @RequestParam String searchTerm,
             @PageableDefault(size = 20) Pageable pageable) {
         PageResponse<CardDto> cards = cardService.searchUserCards(
-                userDetails.getUsername(), searchTerm, pageable);
+                currentUser, searchTerm, pageable);
         return ResponseEntity.ok(ApiResponse.success(cards));
     }
 
@@ -100,17 +100,17 @@ public class CardController {
     public ResponseEntity<ApiResponse<CardDto>> updateCard(
             @PathVariable Long cardId,
             @Valid @RequestBody UpdateCardRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        CardDto card = cardService.updateCard(cardId, request, userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        CardDto card = cardService.updateCard(cardId, request, currentUser);
         return ResponseEntity.ok(ApiResponse.success("Card updated successfully", card));
     }
 
     @PostMapping("/block-request")
     @Operation(summary = "Request card block", description = "Request to block own card")
     public ResponseEntity<ApiResponse<Void>> requestBlockCard(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
             @Valid @RequestBody BlockCardRequest request) {
-        cardService.requestBlockCard(userDetails.getUsername(), request);
+        cardService.requestBlockCard(currentUser, request);
         return ResponseEntity.ok(ApiResponse.success("Block request submitted successfully", null));
     }
 
@@ -120,8 +120,8 @@ public class CardController {
     public ResponseEntity<ApiResponse<CardDto>> blockCard(
             @PathVariable Long cardId,
             @RequestParam String reason,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        CardDto card = cardService.blockCard(cardId, reason, userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        CardDto card = cardService.blockCard(cardId, reason, currentUser);
         return ResponseEntity.ok(ApiResponse.success("Card blocked successfully", card));
     }
 
@@ -130,18 +130,19 @@ public class CardController {
     @Operation(summary = "Unblock card", description = "Unblock a card (Admin only)")
     public ResponseEntity<ApiResponse<CardDto>> unblockCard(
             @PathVariable Long cardId,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        CardDto card = cardService.unblockCard(cardId, userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        CardDto card = cardService.unblockCard(cardId, currentUser);
         return ResponseEntity.ok(ApiResponse.success("Card unblocked successfully", card));
     }
 
     @DeleteMapping("/{cardId}")
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Delete card", description = "Delete a card permanently (Admin only)")
+    @Operation(summary = "Delete card", description = "Delete a card permanently (Admin only). " +
+            "A card with transactions or ledger entries cannot be deleted and is refused with 409; block it instead.")
     public ResponseEntity<ApiResponse<Void>> deleteCard(
             @PathVariable Long cardId,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        cardService.deleteCard(cardId, userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        cardService.deleteCard(cardId, currentUser);
         return ResponseEntity.ok(ApiResponse.success("Card deleted successfully", null));
     }
 
@@ -152,8 +153,8 @@ public class CardController {
             @PathVariable Long requestId,
             @RequestParam boolean approve,
             @RequestParam(required = false) String adminComment,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        cardService.processBlockRequest(requestId, approve, adminComment, userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        cardService.processBlockRequest(requestId, approve, adminComment, currentUser);
         String message = approve ? "Block request approved" : "Block request rejected";
         return ResponseEntity.ok(ApiResponse.success(message, null));
     }
@@ -1,10 +1,17 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.common.ApiResponse;
+import com.example.bankcards.dto.common.CursorPageResponse;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.dto.transaction.*;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.service.AsyncTransferService;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.service.TransactionExportService;
+import com.example.bankcards.service.TransactionExportService.ExportFormat;
 import com.example.bankcards.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -12,12 +19,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -28,35 +37,80 @@ import java.util.List;
 @Tag(name = "Transaction Management", description = "Transaction management APIs")
 public class TransactionController {
 
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
     private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+    private final AsyncTransferService asyncTransferService;
+    private final TransactionExportService transactionExportService;
 
     @PostMapping("/transfer")
-    @Operation(summary = "Transfer money", description = "Transfer money between own cards")
+    @Operation(summary = "Transfer money", description = "Transfer money between own cards. " +
+            "Repeating a request with the same Idempotency-Key returns the original result.")
     public ResponseEntity<ApiResponse<TransactionDto>> transfer(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody TransferRequest request) {
-        TransactionDto transaction = transactionService.transfer(userDetails.getUsername(), request);
+        TransactionDto transaction = idempotencyService.transfer(
+                currentUser, idempotencyKey, request);
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Transfer completed successfully", transaction));
     }
 
+    @PostMapping("/transfer/async")
+    @Operation(summary = "Transfer money asynchronously", description = "Accept a transfer between own cards " +
+            "for background processing. Poll the returned transaction until it leaves the PENDING status.")
+    public ResponseEntity<ApiResponse<TransactionDto>> transferAsync(
+            @Parameter(hidden = true) CurrentUser currentUser,
+            @Valid @RequestBody TransferRequest request) {
+        TransactionDto transaction = asyncTransferService.submit(currentUser, request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Transfer accepted for processing", transaction));
+    }
+
+    @PostMapping("/transfer/batch")
+    @Operation(summary = "Batch transfer", description = "Execute many transfers between own cards at once")
+    public ResponseEntity<ApiResponse<BatchTransferResponse>> transferBatch(
+            @Parameter(hidden = true) CurrentUser currentUser,
+            @Valid @RequestBody BatchTransferRequest request) {
+        BatchTransferResponse response = transactionService.transferBatch(
+                currentUser, request.getTransfers());
+        String message = String.format("Batch processed: %d succeeded, %d failed",
+                response.getSucceeded(), response.getFailed());
+        return ResponseEntity.ok(ApiResponse.success(message, response));
+    }
+
     @GetMapping("/{transactionId}")
     @Operation(summary = "Get transaction details", description = "Get transaction details by ID")
     public ResponseEntity<ApiResponse<TransactionDetailsDto>> getTransactionDetails(
             @PathVariable Long transactionId,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @Parameter(hidden = true) CurrentUser currentUser) {
         TransactionDetailsDto details = transactionService.getTransactionDetails(
-                transactionId, userDetails.getUsername());
+                transactionId, currentUser);
         return ResponseEntity.ok(ApiResponse.success(details));
     }
 
     @GetMapping("/my-transactions")
-    @Operation(summary = "Get my transactions", description = "Get all transactions for current user")
+    @Operation(summary = "Get my transactions", description = "Get all transactions for current user, " +
+            "newest first. The order is fixed: a sort other than transactionDate,desc is rejected with 400.")
     public ResponseEntity<ApiResponse<PageResponse<TransactionDto>>> getMyTransactions(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
             @PageableDefault(size = 20, sort = "transactionDate", direction = Sort.Direction.DESC) Pageable pageable) {
         PageResponse<TransactionDto> transactions = transactionService.getUserTransactions(
-                userDetails.getUsername(), pageable);
+                currentUser, pageable);
+        return ResponseEntity.ok(ApiResponse.success(transactions));
+    }
+
+    @GetMapping(value = "/my-transactions", params = "after")
+    @Operation(summary = "Get my transactions by cursor", description = "Get transactions for current user, " +
+            "newest first, continuing after the given cursor. Pass an empty cursor for the first page " +
+            "and the returned nextCursor for the following ones.")
+    public ResponseEntity<ApiResponse<CursorPageResponse<TransactionDto>>> getMyTransactionsAfter(
+            @Parameter(hidden = true) CurrentUser currentUser,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPageResponse<TransactionDto> transactions = transactionService.getUserTransactions(
+                currentUser, after, size);
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
 
@@ -64,10 +118,23 @@ public class TransactionController {
     @Operation(summary = "Get card transactions", description = "Get all transactions for a specific card")
     public ResponseEntity<ApiResponse<PageResponse<TransactionDto>>> getCardTransactions(
             @PathVariable Long cardId,
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
             @PageableDefault(size = 20, sort = "transactionDate", direction = Sort.Direction.DESC) Pageable pageable) {
         PageResponse<TransactionDto> transactions = transactionService.getCardTransactions(
-                cardId, userDetails.getUsername(), pageable);
+                cardId, currentUser, pageable);
+        return ResponseEntity.ok(ApiResponse.success(transactions));
+    }
+
+    @GetMapping(value = "/card/{cardId}", params = "after")
+    @Operation(summary = "Get card transactions by cursor", description = "Get transactions for a specific card, " +
+            "newest first, continuing after the given cursor")
+    public ResponseEntity<ApiResponse<CursorPageResponse<TransactionDto>>> getCardTransactionsAfter(
+            @PathVariable Long cardId,
+            @Parameter(hidden = true) CurrentUser currentUser,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPageResponse<TransactionDto> transactions = transactionService.getCardTransactions(
+                cardId, currentUser, after, size);
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
 
@@ -80,6 +147,17 @@ public class TransactionController {
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
 
+    @GetMapping(params = "after")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Get all transactions by cursor", description = "Get all transactions, newest first, " +
+            "continuing after the given cursor (Admin only)")
+    public ResponseEntity<ApiResponse<CursorPageResponse<TransactionDto>>> getAllTransactionsAfter(
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPageResponse<TransactionDto> transactions = transactionService.getAllTransactions(after, size);
+        return ResponseEntity.ok(ApiResponse.success(transactions));
+    }
+
     @GetMapping("/date-range")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Get transactions by date range", description = "Get transactions within date range (Admin only)")
@@ -89,4 +167,27 @@ public class TransactionController {
         List<TransactionDto> transactions = transactionService.getTransactionsByDateRange(startDate, endDate);
         return ResponseEntity.ok(ApiResponse.success(transactions));
     }
+
+    @GetMapping("/date-range/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Export transactions by date range", description = "Stream transactions within date range " +
+            "as NDJSON or CSV (Admin only). With gzip=true the download is a gzip file of the export, sent as " +
+            "application/gzip with a .gz file name and without Content-Encoding, so clients must decompress it.")
+    public ResponseEntity<StreamingResponseBody> exportTransactionsByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        transactionExportService.validateRange(startDate, endDate);
+        StreamingResponseBody body = outputStream ->
+                transactionExportService.export(startDate, endDate, format, gzip, outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions." + format.getExtension() + (gzip ? ".gz" : ""))
+                        .build()
+                        .toString())
+                .body(body);
+    }
 }
\ No newline at end of file
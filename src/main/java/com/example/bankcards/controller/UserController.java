@@ -3,8 +3,10 @@ package com.example.bankcards.controller;
 import com.example.bankcards.dto.common.ApiResponse;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.dto.user.*;
+import com.example.bankcards.security.CurrentUser;
 import com.example.bankcards.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,8 +15,6 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -28,8 +28,8 @@ public class UserController {
     @GetMapping("/profile")
     @Operation(summary = "Get user profile", description = "Get current user's profile information")
     public ResponseEntity<ApiResponse<UserProfileDto>> getCurrentUserProfile(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        UserProfileDto profile = userService.getUserProfile(userDetails.getUsername());
+            @Parameter(hidden = true) CurrentUser currentUser) {
+        UserProfileDto profile = userService.getUserProfile(currentUser);
         return ResponseEntity.ok(ApiResponse.success(profile));
     }
 
@@ -44,9 +44,9 @@ public class UserController {
     @PutMapping("/profile")
     @Operation(summary = "Update user profile", description = "Update current user's profile")
     public ResponseEntity<ApiResponse<UserDto>> updateProfile(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) CurrentUser currentUser,
             @Valid @RequestBody UserUpdateRequest request) {
-        UserDto updatedUser = userService.updateUser(userDetails.getUsername(), request);
+        UserDto updatedUser = userService.updateUser(currentUser, request);
         return ResponseEntity.ok(ApiResponse.success("Profile updated successfully", updatedUser));
     }
 
@@ -0,0 +1,11 @@
+package com.example.bankcards.dto.auth;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogoutRequest {
+    private String refreshToken;
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.card;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBalanceDto {
+    private Long cardId;
+    private LocalDateTime asOf;
+    private BigDecimal balance;
+}
@@ -20,7 +20,11 @@ public class CardDetailsDto {
     private CardType cardType;
     private BigDecimal balance;
     private BigDecimal dailyLimit;
+    private BigDecimal weeklyLimit;
+    private BigDecimal monthlyLimit;
     private BigDecimal todaySpent;
+    private BigDecimal weekSpent;
+    private BigDecimal monthSpent;
     private String ownerName;
     private String ownerEmail;
     private String blockReason;
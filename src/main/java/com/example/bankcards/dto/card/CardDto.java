@@ -20,6 +20,8 @@ public class CardDto {
     private CardType cardType;
     private BigDecimal balance;
     private BigDecimal dailyLimit;
+    private BigDecimal weeklyLimit;
+    private BigDecimal monthlyLimit;
     private String ownerUsername;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -21,6 +21,14 @@ public class CreateCardRequest {
     @DecimalMax(value = "100000.0", message = "Daily limit exceeds maximum")
     private BigDecimal dailyLimit;
 
+    @DecimalMin(value = "0.0", message = "Weekly limit must be positive")
+    @DecimalMax(value = "700000.0", message = "Weekly limit exceeds maximum")
+    private BigDecimal weeklyLimit;
+
+    @DecimalMin(value = "0.0", message = "Monthly limit must be positive")
+    @DecimalMax(value = "3000000.0", message = "Monthly limit exceeds maximum")
+    private BigDecimal monthlyLimit;
+
     @DecimalMin(value = "0.0", message = "Initial balance must be positive")
     private BigDecimal initialBalance;
 }
\ No newline at end of file
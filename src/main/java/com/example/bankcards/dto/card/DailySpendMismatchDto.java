@@ -0,0 +1,16 @@
+package com.example.bankcards.dto.card;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySpendMismatchDto {
+    private Long cardId;
+    private LocalDate day;
+    private BigDecimal counterAmount;
+    private BigDecimal actualAmount;
+}
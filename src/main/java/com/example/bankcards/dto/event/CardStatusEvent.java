@@ -0,0 +1,18 @@
+package com.example.bankcards.dto.event;
+
+import com.example.bankcards.entity.Card.CardStatus;
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardStatusEvent {
+    private Long cardId;
+    private Long ownerId;
+    private CardStatus status;
+    private String reason;
+    private Long blockRequestId;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,23 @@
+package com.example.bankcards.dto.event;
+
+import com.example.bankcards.entity.Transaction.TransactionStatus;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferEvent {
+    private Long id;
+    private String transactionId;
+    private String referenceNumber;
+    private Long sourceCardId;
+    private Long destinationCardId;
+    private BigDecimal amount;
+    private TransactionStatus status;
+    private String failureReason;
+    private LocalDateTime transactionDate;
+    private LocalDateTime processedDate;
+}
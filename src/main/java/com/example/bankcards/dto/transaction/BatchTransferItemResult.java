@@ -0,0 +1,14 @@
+package com.example.bankcards.dto.transaction;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferItemResult {
+    private int index;
+    private boolean success;
+    private TransactionDto transaction;
+    private String error;
+}
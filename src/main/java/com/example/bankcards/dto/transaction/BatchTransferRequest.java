@@ -0,0 +1,16 @@
+package com.example.bankcards.dto.transaction;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferRequest {
+    // Items are validated one by one in the service so an invalid item fails alone
+    @NotEmpty(message = "At least one transfer is required")
+    @Size(max = 1000, message = "A batch may contain at most 1000 transfers")
+    private List<TransferRequest> transfers;
+}
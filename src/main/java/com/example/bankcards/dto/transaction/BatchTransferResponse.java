@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.transaction;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransferResponse {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<BatchTransferItemResult> results;
+}
@@ -12,7 +12,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "cards", indexes = {
-        @Index(name = "idx_card_number", columnList = "encrypted_card_number"),
+        @Index(name = "uk_cards_card_number_hash", columnList = "card_number_hash", unique = true),
         @Index(name = "idx_card_owner", columnList = "owner_id"),
         @Index(name = "idx_card_status", columnList = "status")
 })
@@ -26,6 +26,10 @@ public class Card extends BaseEntity {
     @Column(name = "encrypted_card_number", nullable = false, unique = true)
     private String encryptedCardNumber;
 
+    // HMAC of the plain card number, so cards can be found without decrypting
+    @Column(name = "card_number_hash", unique = true, length = 64)
+    private String cardNumberHash;
+
     @Column(name = "masked_card_number", nullable = false, length = 19)
     private String maskedCardNumber; // **** **** **** 1234
 
@@ -52,6 +56,12 @@ public class Card extends BaseEntity {
     @Column(name = "daily_limit", precision = 15, scale = 2)
     private BigDecimal dailyLimit;
 
+    @Column(name = "weekly_limit", precision = 15, scale = 2)
+    private BigDecimal weeklyLimit;
+
+    @Column(name = "monthly_limit", precision = 15, scale = 2)
+    private BigDecimal monthlyLimit;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
@@ -68,6 +78,10 @@ public class Card extends BaseEntity {
     @Column(name = "blocked_at")
     private LocalDateTime blockedAt;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     public enum CardStatus {
         ACTIVE,
         BLOCKED,
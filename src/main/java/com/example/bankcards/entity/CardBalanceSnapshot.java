@@ -0,0 +1,44 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Balance of a card including every ledger entry created before {@code asOf}.
+ * The balance at any later time is the snapshot plus the entries since it.
+ */
+@Entity
+@Table(name = "card_balance_snapshots")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardBalanceSnapshot {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "card_id", nullable = false)
+        private Long cardId;
+
+        @Column(name = "as_of", nullable = false)
+        private LocalDateTime asOf;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Running total of completed outgoing transfers per card and calendar day.
+ * Maintained by an atomic upsert in the transfer transaction, so limit checks read one row
+ * instead of summing the day's transactions.
+ */
+@Entity
+@Table(name = "card_daily_spend")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardDailySpend {
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "card_id", nullable = false)
+        private Long cardId;
+
+        @Column(name = "day", nullable = false)
+        private LocalDate day;
+    }
+}
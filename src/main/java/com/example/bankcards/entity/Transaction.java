@@ -8,9 +8,10 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "transactions", indexes = {
-        @Index(name = "idx_transaction_source", columnList = "source_card_id"),
-        @Index(name = "idx_transaction_destination", columnList = "destination_card_id"),
-        @Index(name = "idx_transaction_date", columnList = "transaction_date"),
+        @Index(name = "idx_transaction_source_date_id", columnList = "source_card_id, transaction_date, id"),
+        @Index(name = "idx_transaction_destination_date_id", columnList = "destination_card_id, transaction_date, id"),
+        @Index(name = "idx_transaction_date_id", columnList = "transaction_date, id"),
+        @Index(name = "idx_transaction_source_owner_date_id", columnList = "source_owner_id, transaction_date, id"),
         @Index(name = "idx_transaction_status", columnList = "status")
 })
 @Getter
@@ -31,6 +32,13 @@ public class Transaction extends BaseEntity {
     @JoinColumn(name = "destination_card_id")
     private Card destinationCard;
 
+    // Owners of the cards at transfer time, so per-user history needs no join to cards
+    @Column(name = "source_owner_id")
+    private Long sourceOwnerId;
+
+    @Column(name = "destination_owner_id")
+    private Long destinationOwnerId;
+
     @Column(nullable = false, precision = 15, scale = 2)
     private BigDecimal amount;
 
@@ -84,12 +92,5 @@ public class Transaction extends BaseEntity {
         if (transactionDate == null) {
             transactionDate = LocalDateTime.now();
         }
-        if (transactionId == null) {
-            transactionId = generateTransactionId();
-        }
-    }
-
-    private String generateTransactionId() {
-        return "TXN" + System.currentTimeMillis() + Math.random();
     }
 }
\ No newline at end of file
@@ -39,6 +39,10 @@ public class User extends BaseEntity {
     @Column(name = "is_locked")
     private boolean locked = false;
 
+    // Changes whenever previously issued tokens must stop working
+    @Column(name = "security_stamp", nullable = false)
+    private int securityStamp;
+
     @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.MERGE)
     @JoinTable(
             name = "user_roles",
@@ -53,4 +57,8 @@ public class User extends BaseEntity {
     public String getFullName() {
         return firstName + " " + lastName;
     }
+
+    public void rotateSecurityStamp() {
+        securityStamp++;
+    }
 }
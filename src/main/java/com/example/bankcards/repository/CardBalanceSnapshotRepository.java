@@ -0,0 +1,33 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CardBalanceSnapshotRepository extends JpaRepository<CardBalanceSnapshot, CardBalanceSnapshot.Key> {
+
+    /**
+     * Writes a snapshot at {@code asOf} for every card with entries since the previous
+     * snapshot run at {@code since}, carrying forward the card's latest snapshot.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO card_balance_snapshots (card_id, as_of, balance, created_at) " +
+            "SELECT e.card_id, :asOf, COALESCE(s.balance, 0) + " +
+            "SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END), CURRENT_TIMESTAMP " +
+            "FROM ledger_entries e LEFT JOIN (" +
+            "SELECT DISTINCT ON (card_id) card_id, balance FROM card_balance_snapshots " +
+            "ORDER BY card_id, as_of DESC) s ON s.card_id = e.card_id " +
+            "WHERE e.created_at >= :since AND e.created_at < :asOf " +
+            "GROUP BY e.card_id, s.balance",
+            nativeQuery = true)
+    int insertSnapshots(@Param("since") LocalDateTime since, @Param("asOf") LocalDateTime asOf);
+
+    @Query(value = "SELECT MAX(as_of) FROM card_balance_snapshots", nativeQuery = true)
+    LocalDateTime findLatestSnapshotTime();
+}
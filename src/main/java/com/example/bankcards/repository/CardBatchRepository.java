@@ -0,0 +1,11 @@
+package com.example.bankcards.repository;
+
+import java.util.Map;
+
+public interface CardBatchRepository {
+
+    /**
+     * Sets the card number hash of each card, keyed by card id, with a single JDBC batch.
+     */
+    void batchUpdateCardNumberHashes(Map<Long, String> hashesByCardId);
+}
@@ -0,0 +1,28 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class CardBatchRepositoryImpl implements CardBatchRepository {
+
+    private static final String UPDATE_HASH_SQL = "UPDATE cards SET card_number_hash = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchUpdateCardNumberHashes(Map<Long, String> hashesByCardId) {
+        if (hashesByCardId.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, String>> updates = List.copyOf(hashesByCardId.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_HASH_SQL, updates, updates.size(), (statement, update) -> {
+            statement.setString(1, update.getValue());
+            statement.setLong(2, update.getKey());
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardDailySpend;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CardDailySpendRepository extends JpaRepository<CardDailySpend, CardDailySpend.Key> {
+
+    @Modifying
+    @Query(value = "INSERT INTO card_daily_spend (card_id, day, amount, updated_at) " +
+            "VALUES (:cardId, :day, :amount, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (card_id, day) DO UPDATE " +
+            "SET amount = card_daily_spend.amount + EXCLUDED.amount, updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int addSpend(@Param("cardId") Long cardId, @Param("day") LocalDate day, @Param("amount") BigDecimal amount);
+
+    /**
+     * Recomputes the counters of every card for the given range from the raw transactions,
+     * overwriting whatever is stored. Counters of cards without completed spend in the range
+     * are removed first, so they read as zero again. Callers must run it in a transaction.
+     */
+    default int rebuild(LocalDateTime from, LocalDateTime to) {
+        deleteRange(from, to);
+        return recompute(from, to);
+    }
+
+    @Modifying
+    @Query(value = "DELETE FROM card_daily_spend WHERE day >= CAST(:from AS DATE) AND day < CAST(:to AS DATE)",
+            nativeQuery = true)
+    int deleteRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Modifying
+    @Query(value = "INSERT INTO card_daily_spend (card_id, day, amount, updated_at) " +
+            "SELECT t.source_card_id, CAST(t.transaction_date AS DATE), SUM(t.amount), CURRENT_TIMESTAMP " +
+            "FROM transactions t WHERE t.status = 'COMPLETED' AND t.source_card_id IS NOT NULL " +
+            "AND t.transaction_date >= :from AND t.transaction_date < :to " +
+            "GROUP BY t.source_card_id, CAST(t.transaction_date AS DATE) " +
+            "ON CONFLICT (card_id, day) DO UPDATE " +
+            "SET amount = EXCLUDED.amount, updated_at = CURRENT_TIMESTAMP",
+            nativeQuery = true)
+    int recompute(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Returns card_id, stored counter and actual SUM for every card whose counter for the
+     * day differs from the completed transactions of that day.
+     */
+    @Query(value = "SELECT COALESCE(s.card_id, t.card_id), COALESCE(s.amount, 0), COALESCE(t.amount, 0) " +
+            "FROM (SELECT card_id, amount FROM card_daily_spend WHERE day = :day) s " +
+            "FULL OUTER JOIN (SELECT source_card_id AS card_id, SUM(amount) AS amount FROM transactions " +
+            "WHERE status = 'COMPLETED' AND source_card_id IS NOT NULL " +
+            "AND transaction_date >= :startOfDay AND transaction_date < :startOfNextDay " +
+            "GROUP BY source_card_id) t ON s.card_id = t.card_id " +
+            "WHERE COALESCE(s.amount, 0) <> COALESCE(t.amount, 0)",
+            nativeQuery = true)
+    List<Object[]> findMismatches(@Param("day") LocalDate day,
+                                  @Param("startOfDay") LocalDateTime startOfDay,
+                                  @Param("startOfNextDay") LocalDateTime startOfNextDay);
+}
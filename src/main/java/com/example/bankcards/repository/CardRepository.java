@@ -3,23 +3,40 @@ package com.example.bankcards.repository;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Card.CardStatus;
 import com.example.bankcards.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificationExecutor<Card> {
+public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificationExecutor<Card>,
+        CardBatchRepository {
 
-    Optional<Card> findByEncryptedCardNumber(String encryptedCardNumber);
+    Optional<Card> findByCardNumberHash(String cardNumberHash);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id = :cardId")
+    Optional<Card> findByIdForUpdate(@Param("cardId") Long cardId);
+
+    // Rows are locked in the order they are returned, i.e. ascending id
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Card c WHERE c.id IN :cardIds ORDER BY c.id")
+    List<Card> findAllByIdForUpdate(@Param("cardIds") Collection<Long> cardIds);
 
     Page<Card> findByOwner(User owner, Pageable pageable);
 
@@ -45,5 +62,20 @@ public interface CardRepository extends JpaRepository<Card, Long>, JpaSpecificat
             "OR LOWER(c.cardHolderName) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     Page<Card> searchUserCards(@Param("userId") Long userId, @Param("searchTerm") String searchTerm, Pageable pageable);
 
-    boolean existsByEncryptedCardNumber(String encryptedCardNumber);
+    boolean existsByCardNumberHash(String cardNumberHash);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.cardNumberHash FROM Card c WHERE c.cardNumberHash IS NOT NULL")
+    Stream<String> streamCardNumberHashes();
+
+    @Query("SELECT c.id AS id, c.encryptedCardNumber AS encryptedCardNumber FROM Card c " +
+            "WHERE c.cardNumberHash IS NULL ORDER BY c.id")
+    List<EncryptedCardNumber> findWithoutCardNumberHash(Pageable pageable);
+
+    interface EncryptedCardNumber {
+
+        Long getId();
+
+        String getEncryptedCardNumber();
+    }
 }
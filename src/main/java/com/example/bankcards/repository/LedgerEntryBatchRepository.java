@@ -0,0 +1,14 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+
+import java.util.List;
+
+public interface LedgerEntryBatchRepository {
+
+    /**
+     * Inserts the entries with a single JDBC batch. Only the card and transaction ids of
+     * the referenced entities are used.
+     */
+    void batchInsert(List<LedgerEntry> entries);
+}
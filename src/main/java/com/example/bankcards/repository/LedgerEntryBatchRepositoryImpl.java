@@ -0,0 +1,37 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class LedgerEntryBatchRepositoryImpl implements LedgerEntryBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO ledger_entries " +
+            "(card_id, transaction_id, entry_type, amount, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (statement, entry) -> {
+            statement.setLong(1, entry.getCard().getId());
+            if (entry.getTransaction() != null) {
+                statement.setLong(2, entry.getTransaction().getId());
+            } else {
+                statement.setNull(2, Types.BIGINT);
+            }
+            statement.setString(3, entry.getEntryType().name());
+            statement.setBigDecimal(4, entry.getAmount());
+            statement.setTimestamp(5, Timestamp.valueOf(entry.getCreatedAt()));
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long>, LedgerEntryBatchRepository {
+
+    boolean existsByCardId(Long cardId);
+
+    /**
+     * Returns card_id and balance at the given time for each card: the latest snapshot taken
+     * no later than that time plus the entries created between the two.
+     */
+    @Query(value = "SELECT c.id, COALESCE(s.balance, 0) + COALESCE((" +
+            "SELECT SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END) " +
+            "FROM ledger_entries e WHERE e.card_id = c.id " +
+            "AND e.created_at >= COALESCE(s.as_of, '-infinity') AND e.created_at < :asOf), 0) " +
+            "FROM cards c LEFT JOIN LATERAL (" +
+            "SELECT balance, as_of FROM card_balance_snapshots " +
+            "WHERE card_id = c.id AND as_of <= :asOf ORDER BY as_of DESC LIMIT 1) s ON TRUE " +
+            "WHERE c.id IN (:cardIds)",
+            nativeQuery = true)
+    List<Object[]> findBalancesAsOf(@Param("cardIds") Collection<Long> cardIds,
+                                    @Param("asOf") LocalDateTime asOf);
+
+    /**
+     * Overwrites cards.balance with the current ledger balance of every card.
+     */
+    @Modifying
+    @Query(value = "UPDATE cards c SET balance = COALESCE(s.balance, 0) + COALESCE((" +
+            "SELECT SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END) " +
+            "FROM ledger_entries e WHERE e.card_id = c.id " +
+            "AND e.created_at >= COALESCE(s.as_of, '-infinity')), 0), version = c.version + 1 " +
+            "FROM cards c2 LEFT JOIN LATERAL (" +
+            "SELECT balance, as_of FROM card_balance_snapshots WHERE card_id = c2.id " +
+            "ORDER BY as_of DESC LIMIT 1) s ON TRUE " +
+            "WHERE c2.id = c.id",
+            nativeQuery = true)
+    int syncCardBalances();
+}
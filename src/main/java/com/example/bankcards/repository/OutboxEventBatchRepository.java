@@ -0,0 +1,13 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.OutboxEvent;
+
+import java.util.List;
+
+public interface OutboxEventBatchRepository {
+
+    /**
+     * Inserts the events with a single JDBC batch. Generated ids are not read back.
+     */
+    void batchInsert(List<OutboxEvent> events);
+}
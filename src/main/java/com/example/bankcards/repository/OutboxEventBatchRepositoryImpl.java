@@ -0,0 +1,32 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class OutboxEventBatchRepositoryImpl implements OutboxEventBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events " +
+            "(aggregate_type, aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (statement, event) -> {
+            statement.setString(1, event.getAggregateType().name());
+            statement.setString(2, event.getAggregateId());
+            statement.setString(3, event.getEventType().name());
+            statement.setString(4, event.getPayload());
+            statement.setTimestamp(5, Timestamp.valueOf(event.getCreatedAt()));
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+
+import java.util.List;
+
+public interface TransactionBatchRepository {
+
+    /**
+     * Inserts the transactions with a single JDBC batch and assigns the generated ids
+     * back to the entities. The entities are not attached to the persistence context.
+     */
+    void batchInsert(List<Transaction> transactions);
+}
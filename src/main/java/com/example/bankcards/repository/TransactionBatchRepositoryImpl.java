@@ -0,0 +1,89 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class TransactionBatchRepositoryImpl implements TransactionBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO transactions (transaction_id, source_card_id, " +
+            "destination_card_id, source_owner_id, destination_owner_id, amount, type, status, description, " +
+            "transaction_date, processed_date, reference_number, failure_reason, balance_before, balance_after, " +
+            "created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[]{"id"})) {
+                LocalDateTime now = LocalDateTime.now();
+                for (Transaction transaction : transactions) {
+                    transaction.setCreatedAt(now);
+                    transaction.setUpdatedAt(now);
+                    bind(statement, transaction);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (Transaction transaction : transactions) {
+                        if (!keys.next()) {
+                            break;
+                        }
+                        transaction.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void bind(PreparedStatement statement, Transaction transaction) throws SQLException {
+        statement.setString(1, transaction.getTransactionId());
+        setLong(statement, 2, transaction.getSourceCard() != null ? transaction.getSourceCard().getId() : null);
+        setLong(statement, 3, transaction.getDestinationCard() != null ?
+                transaction.getDestinationCard().getId() : null);
+        setLong(statement, 4, transaction.getSourceOwnerId());
+        setLong(statement, 5, transaction.getDestinationOwnerId());
+        statement.setBigDecimal(6, transaction.getAmount());
+        statement.setString(7, transaction.getType().name());
+        statement.setString(8, transaction.getStatus().name());
+        statement.setString(9, transaction.getDescription());
+        statement.setTimestamp(10, toTimestamp(transaction.getTransactionDate()));
+        statement.setTimestamp(11, toTimestamp(transaction.getProcessedDate()));
+        statement.setString(12, transaction.getReferenceNumber());
+        statement.setString(13, transaction.getFailureReason());
+        statement.setBigDecimal(14, transaction.getBalanceBefore());
+        statement.setBigDecimal(15, transaction.getBalanceAfter());
+        statement.setTimestamp(16, toTimestamp(transaction.getCreatedAt()));
+        statement.setTimestamp(17, toTimestamp(transaction.getUpdatedAt()));
+    }
+
+    private void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+
+    private Timestamp toTimestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+}
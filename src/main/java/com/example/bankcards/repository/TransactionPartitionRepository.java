@@ -0,0 +1,44 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * Partition DDL for the transactions table, which Postgres range-partitions by month on
+ * transaction_date.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionPartitionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid " +
+                        "WHERE c.relname = 'transactions' AND pg_table_is_visible(c.oid))",
+                Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    public boolean exists(String partition) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+    }
+
+    /**
+     * Creates the partition for transaction dates from {@code from} (inclusive) to
+     * {@code to} (exclusive). The names and dates come from the caller, never from input.
+     */
+    public void create(String partition, LocalDate from, LocalDate to) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF transactions " +
+                "FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    public long countDefaultPartitionRows() {
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions_default", Long.class);
+        return rows != null ? rows : 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The authenticated caller of the current request, resolved once from the security context
+ * and handed to the services in place of a bare username. The roles come from the verified
+ * token, whose security stamp is rotated whenever the roles change.
+ */
+@Value
+public class CurrentUser {
+
+    Long id;
+    String username;
+    Set<Role.RoleName> roles;
+
+    public static CurrentUser of(Long id, String username, Collection<? extends GrantedAuthority> authorities) {
+        Set<String> granted = authorities.stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet());
+        Set<Role.RoleName> roles = Arrays.stream(Role.RoleName.values())
+                .filter(role -> granted.contains(role.name()))
+                .collect(Collectors.toUnmodifiableSet());
+        return new CurrentUser(id, username, roles);
+    }
+
+    public boolean isAdmin() {
+        return roles.contains(Role.RoleName.ROLE_ADMIN);
+    }
+
+    public boolean owns(Long ownerId) {
+        return id.equals(ownerId);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.UnauthorizedException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Supplies {@link CurrentUser} controller parameters. The caller is resolved from the
+ * authenticated principal once per request and kept as a request attribute; principals
+ * built from token claims already carry the id, so no lookup is needed for them.
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String ATTRIBUTE = CurrentUser.class.getName();
+
+    private final UserPrincipalCache userPrincipalCache;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.getParameterType().equals(CurrentUser.class);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object resolved = webRequest.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (resolved instanceof CurrentUser currentUser) {
+            return currentUser;
+        }
+
+        CurrentUser currentUser = resolve(SecurityContextHolder.getContext().getAuthentication());
+        webRequest.setAttribute(ATTRIBUTE, currentUser, RequestAttributes.SCOPE_REQUEST);
+        return currentUser;
+    }
+
+    private CurrentUser resolve(Authentication authentication) {
+        Object principal = authentication != null ? authentication.getPrincipal() : null;
+        if (principal instanceof JwtPrincipal jwtPrincipal) {
+            return CurrentUser.of(jwtPrincipal.getId(), jwtPrincipal.getUsername(), jwtPrincipal.getAuthorities());
+        }
+        if (principal instanceof CustomUserDetails userDetails) {
+            return CurrentUser.of(userDetails.getId(), userDetails.getUsername(), userDetails.getAuthorities());
+        }
+        if (principal instanceof UserDetails userDetails) {
+            UserSnapshot user = userPrincipalCache.findByUsername(userDetails.getUsername())
+                    .orElseThrow(() -> new UnauthorizedException("Authentication required"));
+            return CurrentUser.of(user.getId(), user.getUsername(), userDetails.getAuthorities());
+        }
+        throw new UnauthorizedException("Authentication required");
+    }
+}
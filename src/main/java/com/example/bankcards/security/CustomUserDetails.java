@@ -14,12 +14,16 @@ import java.util.stream.Collectors;
 @Getter
 public class CustomUserDetails implements UserDetails {
 
-    private final User user;
+    private final UserSnapshot user;
+
+    public CustomUserDetails(User user) {
+        this(UserSnapshot.from(user));
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return user.getRoles().stream()
-                .map(role -> new SimpleGrantedAuthority(role.getName().toString()))
+                .map(role -> new SimpleGrantedAuthority(role.toString()))
                 .collect(Collectors.toList());
     }
 
@@ -64,4 +68,8 @@ public class CustomUserDetails implements UserDetails {
     public String getFullName() {
         return user.getFullName();
     }
+
+    public int getSecurityStamp() {
+        return user.getSecurityStamp();
+    }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.example.bankcards.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -13,14 +14,14 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsernameWithRoles(username)
+        UserSnapshot user = userPrincipalCache.findByUsername(username)
                 .orElseThrow(() -> {
                     log.error("User not found with username: {}", username);
                     return new UsernameNotFoundException("User not found with username: " + username);
@@ -30,9 +31,8 @@ public class CustomUserDetailsService implements UserDetailsService {
         return new CustomUserDetails(user);
     }
 
-    @Transactional
     public UserDetails loadUserById(Long id) {
-        User user = userRepository.findById(id)
+        UserSnapshot user = userPrincipalCache.findById(id)
                 .orElseThrow(() -> {
                     log.error("User not found with id: {}", id);
                     return new UsernameNotFoundException("User not found with id: " + id);
@@ -40,4 +40,23 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         return new CustomUserDetails(user);
     }
-}
\ No newline at end of file
+
+    /**
+     * Stores the rehashed password of a user who logged in with a hash of an outdated cost.
+     * The password itself is unchanged, so issued tokens stay valid.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " +
+                        userDetails.getUsername()));
+
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        userPrincipalCache.evictAfterCommit(user);
+
+        log.info("Password hash upgraded for user: {}", user.getUsername());
+        return new CustomUserDetails(user);
+    }
+}
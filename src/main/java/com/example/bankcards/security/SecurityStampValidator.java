@@ -0,0 +1,28 @@
+package com.example.bankcards.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether a token is still honoured for its user: the security stamp in the token
+ * must match the current one and the account must be active and unlocked. The state comes
+ * from the {@link UserPrincipalCache}, so revocation takes effect on this node as soon as
+ * the change commits and on other nodes within the cache TTL.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SecurityStampValidator {
+
+    private final UserPrincipalCache userPrincipalCache;
+
+    public boolean isValid(Long userId, int securityStamp) {
+        UserSnapshot user = userPrincipalCache.findById(userId).orElse(null);
+        if (user == null) {
+            log.debug("Token refers to unknown user {}", userId);
+            return false;
+        }
+        return user.getSecurityStamp() == securityStamp && user.isActive() && !user.isLocked();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.repository.RevokedTokenRepository;
+import com.example.bankcards.util.BloomFilter;
+import com.example.bankcards.util.TimingWheel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Denylist of tokens revoked before their expiry, identified by their jti claim. The
+ * revoked_tokens table is the source of truth; every node mirrors the unexpired entries
+ * in an exact set fronted by a Bloom filter, so checking a token that is not revoked,
+ * which is nearly every token, is a few bit probes without a lock or a query.
+ * <p>
+ * Revocations made on other nodes are picked up by a periodic sync. Entries are dropped
+ * from memory by a timing wheel once the token has expired, and from the table shortly after.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationService {
+
+    private static final int WHEEL_SLOTS = 512;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.security.revocation.expected-tokens}")
+    private int expectedTokens;
+
+    @Value("${app.security.revocation.false-positive-rate}")
+    private double falsePositiveRate;
+
+    @Value("${app.security.revocation.expiry-tick}")
+    private Duration expiryTick;
+
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private TimingWheel<String> expiries;
+    private int filterCapacity;
+    private int removedSinceRebuild;
+    private LocalDateTime lastSync;
+
+    @PostConstruct
+    public void load() {
+        expiries = new TimingWheel<>(expiryTick, WHEEL_SLOTS, System.currentTimeMillis());
+        rebuildFilter();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<RevokedToken> active = revokedTokenRepository.findByExpiresAtAfter(now);
+        active.forEach(token -> remember(token.getJti(), toMillis(token.getExpiresAt())));
+        lastSync = now;
+
+        Gauge.builder("bankcards.revoked_tokens", revoked, ConcurrentMap::size)
+                .description("Unexpired revoked tokens held in memory")
+                .register(meterRegistry);
+        log.info("Loaded {} revoked tokens", active.size());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        return revoked.containsKey(jti);
+    }
+
+    /**
+     * Revokes the token until it expires.
+     *
+     * @return true if this call revoked it, false if it had been revoked already
+     */
+    @Transactional
+    public boolean revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null) {
+            return false;
+        }
+        LocalDateTime expiry = LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault());
+        boolean inserted = revokedTokenRepository.insertIfAbsent(jti, expiry, LocalDateTime.now()) == 1;
+        remember(jti, expiresAt.getTime());
+        return inserted;
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.sync-interval}")
+    public void syncFromDatabase() {
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap the previous window so revocations committed late are not missed
+        LocalDateTime since = lastSync.minusSeconds(5);
+        List<RevokedToken> recent = revokedTokenRepository.findActiveRevokedSince(since, now);
+        for (RevokedToken token : recent) {
+            if (!revoked.containsKey(token.getJti())) {
+                remember(token.getJti(), toMillis(token.getExpiresAt()));
+            }
+        }
+        lastSync = now;
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.expiry-tick}")
+    @Transactional
+    public void expire() {
+        List<String> expired = expiries.advance(System.currentTimeMillis());
+        if (!expired.isEmpty()) {
+            synchronized (this) {
+                expired.forEach(revoked::remove);
+                removedSinceRebuild += expired.size();
+                // Stale bits only cost false positives, so rebuild once they add up
+                if (removedSinceRebuild > filterCapacity / 4) {
+                    rebuildFilter();
+                }
+            }
+        }
+
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Purged {} expired revoked tokens", deleted);
+        }
+    }
+
+    private synchronized void remember(String jti, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        if (revoked.putIfAbsent(jti, expiresAtMillis) != null) {
+            return;
+        }
+        expiries.schedule(jti, expiresAtMillis);
+        if (revoked.size() > filterCapacity) {
+            rebuildFilter();
+        } else {
+            filter.put(jti);
+        }
+    }
+
+    // Caller holds the monitor, or the service is still being initialised
+    private void rebuildFilter() {
+        filterCapacity = Math.max(expectedTokens, revoked.size() * 2);
+        BloomFilter rebuilt = new BloomFilter(filterCapacity, falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+        removedSinceRebuild = 0;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
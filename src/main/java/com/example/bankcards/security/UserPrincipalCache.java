@@ -0,0 +1,120 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.LruCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps recently used accounts as {@link UserSnapshot}s, looked up by username and by id,
+ * so authentication and per-request authorization checks do not load the user and its
+ * roles every time. Every change to an account evicts it once the change commits; entries
+ * also expire after the TTL, which bounds how long other nodes keep serving a stale copy.
+ */
+@Component
+@Slf4j
+public class UserPrincipalCache {
+
+    private final UserRepository userRepository;
+    private final LruCache<String, UserSnapshot> byUsername;
+    private final LruCache<Long, UserSnapshot> byId;
+    private final long ttlMillis;
+
+    // Bumped on every eviction so a load that raced with it is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserPrincipalCache(UserRepository userRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.security.user-cache.size}") int size,
+                              @Value("${app.security.user-cache.ttl}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.byUsername = new LruCache<>(size);
+        this.byId = new LruCache<>(size);
+        this.ttlMillis = ttl.toMillis();
+
+        registerMeters(meterRegistry, "username", byUsername);
+        registerMeters(meterRegistry, "id", byId);
+    }
+
+    public Optional<UserSnapshot> findByUsername(String username) {
+        UserSnapshot snapshot = byUsername.get(username);
+        if (snapshot != null) {
+            return Optional.of(snapshot);
+        }
+        return load(() -> userRepository.findByUsernameWithRoles(username));
+    }
+
+    public Optional<UserSnapshot> findById(Long id) {
+        UserSnapshot snapshot = byId.get(id);
+        if (snapshot != null) {
+            return Optional.of(snapshot);
+        }
+        return load(() -> userRepository.findByIdWithRoles(id));
+    }
+
+    /**
+     * Forgets the user once the current transaction commits, so the next lookup on this
+     * node sees the change.
+     */
+    public void evictAfterCommit(User user) {
+        Long id = user.getId();
+        String username = user.getUsername();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id, username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(id, username);
+            }
+        });
+    }
+
+    private Optional<UserSnapshot> load(Supplier<Optional<User>> query) {
+        long loadedAt = generation.get();
+        Optional<UserSnapshot> snapshot = query.get().map(UserSnapshot::from);
+        snapshot.ifPresent(loaded -> {
+            if (generation.get() == loadedAt) {
+                long expiresAt = System.currentTimeMillis() + ttlMillis;
+                byUsername.put(loaded.getUsername(), loaded, expiresAt);
+                byId.put(loaded.getId(), loaded, expiresAt);
+            }
+        });
+        return snapshot;
+    }
+
+    private void evict(Long id, String username) {
+        generation.incrementAndGet();
+        byId.remove(id);
+        byUsername.remove(username);
+        log.debug("Evicted user {} from the principal cache", username);
+    }
+
+    private static void registerMeters(MeterRegistry meterRegistry, String key, LruCache<?, ?> cache) {
+        FunctionCounter.builder("bankcards.user_cache.requests", cache, LruCache::hits)
+                .description("Principal cache lookups")
+                .tags("key", key, "result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("bankcards.user_cache.requests", cache, LruCache::misses)
+                .description("Principal cache lookups")
+                .tags("key", key, "result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("bankcards.user_cache.size", cache, LruCache::size)
+                .description("Users held by the principal cache")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable copy of the account fields needed to authenticate and authorize a user.
+ * Safe to share between threads and to keep outside of a persistence context.
+ */
+@Value
+@Builder
+public class UserSnapshot {
+
+    Long id;
+    String username;
+    String email;
+    String firstName;
+    String lastName;
+    String password;
+    boolean active;
+    boolean locked;
+    int securityStamp;
+    Set<Role.RoleName> roles;
+
+    public static UserSnapshot from(User user) {
+        return UserSnapshot.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .password(user.getPassword())
+                .active(user.isActive())
+                .locked(user.isLocked())
+                .securityStamp(user.getSecurityStamp())
+                .roles(user.getRoles().stream()
+                        .map(Role::getName)
+                        .collect(Collectors.toUnmodifiableSet()))
+                .build();
+    }
+
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+
+    public boolean isAdmin() {
+        return roles.contains(Role.RoleName.ROLE_ADMIN);
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.bankcards.security.jwt;
 
+import com.example.bankcards.security.JwtPrincipal;
+import com.example.bankcards.security.SecurityStampValidator;
+import com.example.bankcards.security.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,6 +12,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -16,6 +21,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -24,6 +31,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
     private final UserDetailsService userDetailsService;
+    private final SecurityStampValidator securityStampValidator;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(
@@ -44,12 +53,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            username = jwtUtils.extractUsername(jwt);
+            Claims claims = jwtUtils.extractAllClaims(jwt);
+            username = claims.getSubject();
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            if (tokenRevocationService.isRevoked(claims.getId())) {
+                log.debug("Rejected revoked token of user {}", username);
+            } else if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = claims.get(JwtUtils.CLAIM_USER_ID) != null ?
+                        principalFromClaims(claims) : loadLegacyPrincipal(username);
 
-                if (jwtUtils.isTokenValid(jwt, userDetails)) {
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -66,4 +79,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private UserDetails principalFromClaims(Claims claims) {
+        Long userId = claims.get(JwtUtils.CLAIM_USER_ID, Number.class).longValue();
+        int securityStamp = claims.get(JwtUtils.CLAIM_SECURITY_STAMP, Number.class).intValue();
+        if (!securityStampValidator.isValid(userId, securityStamp)) {
+            log.debug("Rejected token of user {} with outdated security stamp", claims.getSubject());
+            return null;
+        }
+
+        Collection<?> roles = claims.get(JwtUtils.CLAIM_ROLES, Collection.class);
+        List<SimpleGrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(role -> new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        return new JwtPrincipal(userId, claims.getSubject(), authorities);
+    }
+
+    // Tokens issued before identity claims were added; they expire on their own
+    private UserDetails loadLegacyPrincipal(String username) {
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        return userDetails.isEnabled() && userDetails.isAccountNonLocked() ? userDetails : null;
+    }
+}
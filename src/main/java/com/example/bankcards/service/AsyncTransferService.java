@@ -0,0 +1,158 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.TransactionDto;
+import com.example.bankcards.dto.transaction.TransferRequest;
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.exception.ServiceUnavailableException;
+import com.example.bankcards.security.CurrentUser;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts transfers without executing them on the request thread. A transfer is stored as
+ * PENDING and its id is queued; a small pool of workers drains the queue in micro-batches
+ * and executes each batch in one database transaction. Clients follow the outcome through
+ * the transaction status.
+ * <p>
+ * The queue lives in memory only. Transfers still PENDING after a restart, or whose id did
+ * not fit into the queue, are picked up again by a periodic sweep.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AsyncTransferService {
+
+    private final TransactionService transactionService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.transfer.async.workers}")
+    private int workerCount;
+
+    @Value("${app.transfer.async.queue-capacity}")
+    private int queueCapacity;
+
+    @Value("${app.transfer.async.batch-size}")
+    private int batchSize;
+
+    @Value("${app.transfer.async.stale-after}")
+    private Duration staleAfter;
+
+    private BlockingQueue<Long> queue;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "async-transfer-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::drainQueue);
+        }
+
+        Gauge.builder("bankcards.transfer.async.queued", queue, BlockingQueue::size)
+                .description("Accepted transfers waiting for a worker")
+                .register(meterRegistry);
+        log.info("Started {} asynchronous transfer workers", workerCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    public TransactionDto submit(CurrentUser currentUser, TransferRequest request) {
+        // Rejecting up front keeps clients from piling up work that would only be swept later
+        if (queue.remainingCapacity() == 0) {
+            throw new ServiceUnavailableException("Too many pending transfers, please retry later");
+        }
+
+        TransactionDto pending = transactionService.createPendingTransfer(currentUser, request);
+        if (!queue.offer(pending.getId())) {
+            log.warn("Transfer queue is full, transfer {} is left for the sweep", pending.getTransactionId());
+        }
+        return pending;
+    }
+
+    /**
+     * Re-queues transfers that have been PENDING for too long, e.g. after a restart.
+     */
+    @Scheduled(fixedDelayString = "${app.transfer.async.sweep-interval}")
+    public void sweepStalePendingTransfers() {
+        List<Long> stale = transactionService.findStalePendingTransfers(
+                LocalDateTime.now().minus(staleAfter), queue.remainingCapacity());
+        int queued = 0;
+        for (Long transactionId : stale) {
+            if (!queue.offer(transactionId)) {
+                break;
+            }
+            queued++;
+        }
+        if (queued > 0) {
+            log.info("Re-queued {} stale pending transfers", queued);
+        }
+    }
+
+    private void drainQueue() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> batch = new ArrayList<>(batchSize);
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            process(batch);
+        }
+    }
+
+    private void process(List<Long> batch) {
+        try {
+            transactionService.processPendingTransfers(batch);
+            meterRegistry.counter("bankcards.transfer.async.batches", "outcome", "success").increment();
+        } catch (RuntimeException e) {
+            meterRegistry.counter("bankcards.transfer.async.batches", "outcome", "error").increment();
+            log.error("Pending transfer batch failed, retrying its transfers one by one: {}", e.getMessage());
+            batch.forEach(this::processSingle);
+        }
+    }
+
+    private void processSingle(Long transactionId) {
+        try {
+            transactionService.processPendingTransfers(List.of(transactionId));
+        } catch (ConflictException e) {
+            // Still contended after all retries; the sweep will offer it again
+            log.warn("Pending transfer {} deferred: {}", transactionId, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Pending transfer {} failed: {}", transactionId, e.getMessage());
+            try {
+                transactionService.failPendingTransfer(transactionId, "Transfer could not be processed");
+            } catch (RuntimeException failure) {
+                // Left PENDING; the sweep will offer it again
+                log.error("Could not mark transfer {} as failed: {}", transactionId, failure.getMessage());
+            }
+        }
+    }
+}
@@ -6,10 +6,16 @@ import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CurrentUser;
 import com.example.bankcards.security.CustomUserDetails;
+import com.example.bankcards.security.TokenRevocationService;
+import com.example.bankcards.security.UserPrincipalCache;
+import com.example.bankcards.security.UserSnapshot;
 import com.example.bankcards.security.jwt.JwtUtils;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -34,6 +40,8 @@ public class AuthService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TokenRevocationService tokenRevocationService;
 
     @Transactional
     public JwtResponse login(LoginRequest loginRequest) {
@@ -48,38 +56,20 @@ public class AuthService {
         SecurityContextHolder.getContext().setAuthentication(authentication);
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
 
-        String jwt = jwtUtils.generateToken(userDetails);
-        String refreshToken = jwtUtils.generateRefreshToken(userDetails);
-
-        List<String> roles = userDetails.getAuthorities().stream()
-                .map(item -> item.getAuthority())
-                .collect(Collectors.toList());
-
         log.info("Login successful for username: {}", loginRequest.getUsername());
-
-        return JwtResponse.builder()
-                .token(jwt)
-                .refreshToken(refreshToken)
-                .id(userDetails.getId())
-                .username(userDetails.getUsername())
-                .email(userDetails.getEmail())
-                .fullName(userDetails.getFullName())
-                .roles(roles)
-                .build();
+        return issueTokens(userDetails);
     }
 
-    @Transactional
+    /**
+     * Creates the account and signs it in. Duplicates are detected by the unique constraints
+     * on username and email rather than by checking up front, and the tokens are issued from
+     * the saved user, so the password is hashed exactly once and never verified again.
+     * Runs without an outer transaction so the insert commits on its own and a violation
+     * can still be examined afterwards.
+     */
     public JwtResponse register(RegisterRequest registerRequest) {
         log.info("Registration attempt for username: {}", registerRequest.getUsername());
 
-        if (userRepository.existsByUsername(registerRequest.getUsername())) {
-            throw new ConflictException("Username is already taken!");
-        }
-
-        if (userRepository.existsByEmail(registerRequest.getEmail())) {
-            throw new ConflictException("Email is already in use!");
-        }
-
         User user = User.builder()
                 .username(registerRequest.getUsername())
                 .email(registerRequest.getEmail())
@@ -98,40 +88,82 @@ public class AuthService {
         roles.add(userRole);
         user.setRoles(roles);
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw registrationConflict(registerRequest, e);
+        }
         log.info("User registered successfully: {}", savedUser.getUsername());
 
         // Auto-login after registration
-        LoginRequest loginRequest = new LoginRequest();
-        loginRequest.setUsername(registerRequest.getUsername());
-        loginRequest.setPassword(registerRequest.getPassword());
-
-        return login(loginRequest);
+        return issueTokens(new CustomUserDetails(savedUser));
     }
 
-    @Transactional
     public JwtResponse refreshToken(RefreshTokenRequest request) {
         String refreshToken = request.getRefreshToken();
 
-        if (!jwtUtils.validateJwtToken(refreshToken)) {
-            throw new TokenRefreshException(refreshToken, "Invalid refresh token");
+        Claims claims = jwtUtils.extractValidClaims(refreshToken)
+                .filter(valid -> !tokenRevocationService.isRevoked(valid.getId()))
+                .orElseThrow(() -> new TokenRefreshException(refreshToken, "Invalid refresh token"));
+        UserSnapshot user = userPrincipalCache.findByUsername(claims.getSubject())
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        Number securityStamp = claims.get(JwtUtils.CLAIM_SECURITY_STAMP, Number.class);
+        if ((securityStamp != null && securityStamp.intValue() != user.getSecurityStamp())
+                || !user.isActive() || user.isLocked()) {
+            throw new TokenRefreshException(refreshToken, "Refresh token has been revoked");
         }
 
-        String username = jwtUtils.extractUsername(refreshToken);
-        User user = userRepository.findByUsername(username)
+        // Rotate: the presented token is spent, and presenting it again means it was replayed
+        if (claims.getId() != null && !tokenRevocationService.revoke(claims.getId(), claims.getExpiration())) {
+            throw new TokenRefreshException(refreshToken, "Refresh token has been revoked");
+        }
+
+        return issueTokens(new CustomUserDetails(user));
+    }
+
+    /**
+     * Revokes the access token and, if given, the refresh token of the session. Tokens
+     * that are already invalid are ignored.
+     */
+    public void logout(String accessToken, String refreshToken) {
+        for (String token : new String[]{accessToken, refreshToken}) {
+            if (token != null) {
+                jwtUtils.extractValidClaims(token)
+                        .ifPresent(claims -> tokenRevocationService.revoke(claims.getId(), claims.getExpiration()));
+            }
+        }
+    }
+
+    @Transactional
+    public void changePassword(CurrentUser currentUser, ChangePasswordRequest request) {
+        User user = userRepository.findById(currentUser.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        CustomUserDetails userDetails = new CustomUserDetails(user);
-        String newToken = jwtUtils.generateToken(userDetails);
-        String newRefreshToken = jwtUtils.generateRefreshToken(userDetails);
+        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+            throw new BadRequestException("Current password is incorrect");
+        }
+
+        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        user.rotateSecurityStamp();
+        userRepository.save(user);
+        userPrincipalCache.evictAfterCommit(user);
+
+        log.info("Password changed successfully for user: {}", user.getUsername());
+    }
+
+    private JwtResponse issueTokens(CustomUserDetails userDetails) {
+        String token = jwtUtils.generateToken(userDetails);
+        String refreshToken = jwtUtils.generateRefreshToken(userDetails);
 
         List<String> roles = userDetails.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toList());
 
         return JwtResponse.builder()
-                .token(newToken)
-                .refreshToken(newRefreshToken)
+                .token(token)
+                .refreshToken(refreshToken)
                 .id(userDetails.getId())
                 .username(userDetails.getUsername())
                 .email(userDetails.getEmail())
@@ -140,18 +172,14 @@ public class AuthService {
                 .build();
     }
 
-    @Transactional
-    public void changePassword(String username, ChangePasswordRequest request) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
-            throw new BadRequestException("Current password is incorrect");
+    // Only reached when an insert failed, so the extra lookup costs nothing on the normal path
+    private RuntimeException registrationConflict(RegisterRequest registerRequest, DataIntegrityViolationException e) {
+        if (userRepository.existsByUsername(registerRequest.getUsername())) {
+            return new ConflictException("Username is already taken!");
         }
-
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-        userRepository.save(user);
-
-        log.info("Password changed successfully for user: {}", username);
+        if (userRepository.existsByEmail(registerRequest.getEmail())) {
+            return new ConflictException("Email is already in use!");
+        }
+        return e;
     }
-}
\ No newline at end of file
+}
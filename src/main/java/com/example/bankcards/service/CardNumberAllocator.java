@@ -0,0 +1,168 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.BloomFilter;
+import com.example.bankcards.util.CardNumberUtils;
+import com.example.bankcards.util.EncryptionUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Hands out new card numbers: BIN-prefixed, Luhn-valid and not used by any existing card.
+ * Numbers are generated ahead of time into a bounded pool by a background thread, so
+ * issuing a card takes one from the pool instead of generating and checking on the
+ * request thread.
+ * <p>
+ * Uniqueness is checked on the blind index: a Bloom filter holds the hashes of every known
+ * card number and of every number this node has handed out, and only candidates it might
+ * contain are checked against the database. Numbers that are pooled or handed out but not
+ * saved yet are not in the database, so they are also kept in an exact set until the caller
+ * {@link #release(CardNumber) releases} them. Cards created on other nodes after startup
+ * are not in the filter, so the unique index on card_number_hash remains the final guard.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CardNumberAllocator {
+
+    private final CardRepository cardRepository;
+    private final CardNumberUtils cardNumberUtils;
+    private final EncryptionUtils encryptionUtils;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.card.number-allocator.bins}")
+    private List<String> bins;
+
+    @Value("${app.card.number-allocator.length}")
+    private int length;
+
+    @Value("${app.card.number-allocator.pool-size}")
+    private int poolSize;
+
+    @Value("${app.card.number-allocator.low-water}")
+    private int lowWater;
+
+    @Value("${app.card.number-allocator.expected-cards}")
+    private int expectedCards;
+
+    @Value("${app.card.number-allocator.false-positive-rate}")
+    private double falsePositiveRate;
+
+    private BlockingQueue<CardNumber> pool;
+    private BloomFilter issued;
+    private final Set<String> unsaved = ConcurrentHashMap.newKeySet();
+    private ExecutorService refiller;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+
+    /**
+     * A card number together with its blind index.
+     */
+    public record CardNumber(String number, String hash) {
+    }
+
+    @PostConstruct
+    public void start() {
+        long existing = cardRepository.count();
+        issued = new BloomFilter((int) Math.max(expectedCards, existing * 2), falsePositiveRate);
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.executeWithoutResult(status -> {
+            try (Stream<String> hashes = cardRepository.streamCardNumberHashes()) {
+                hashes.forEach(issued::put);
+            }
+        });
+
+        pool = new ArrayBlockingQueue<>(poolSize);
+        refiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "card-number-allocator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        requestRefill();
+
+        Gauge.builder("bankcards.card_numbers.pooled", pool, BlockingQueue::size)
+                .description("Pre-generated card numbers ready to be issued")
+                .register(meterRegistry);
+        log.info("Card number allocator started for BINs {} with {} known cards", bins, existing);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refiller.shutdownNow();
+    }
+
+    /**
+     * Takes a fresh card number from the pool, or generates one on the spot if the pool
+     * has run dry. Pass it to {@link #release(CardNumber)} once the card has been saved or
+     * the attempt abandoned.
+     */
+    public CardNumber allocate() {
+        CardNumber cardNumber = pool.poll();
+        if (pool.size() < lowWater) {
+            requestRefill();
+        }
+        return cardNumber != null ? cardNumber : nextUnused();
+    }
+
+    /**
+     * Forgets a number handed out by {@link #allocate()}. Call it after the transaction that
+     * saved the card has completed, when the database check takes over for saved numbers.
+     */
+    public void release(CardNumber cardNumber) {
+        unsaved.remove(cardNumber.hash());
+    }
+
+    private void requestRefill() {
+        if (refilling.compareAndSet(false, true)) {
+            refiller.execute(() -> {
+                try {
+                    while (pool.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                        if (!pool.offer(nextUnused())) {
+                            break;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Refilling the card number pool failed: {}", e.getMessage());
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        }
+    }
+
+    // Synchronized so the pool refill and a request generating on a dry pool cannot issue the same number
+    private synchronized CardNumber nextUnused() {
+        while (true) {
+            String bin = bins.get(ThreadLocalRandom.current().nextInt(bins.size()));
+            String number = cardNumberUtils.generateCardNumber(bin, length);
+            String hash = encryptionUtils.blindIndex(number);
+            if (issued.mightContain(hash)
+                    && (unsaved.contains(hash) || cardRepository.existsByCardNumberHash(hash))) {
+                continue;
+            }
+            issued.put(hash);
+            unsaved.add(hash);
+            return new CardNumber(number, hash);
+        }
+    }
+}
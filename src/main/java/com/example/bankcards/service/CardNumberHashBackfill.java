@@ -0,0 +1,70 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardRepository.EncryptedCardNumber;
+import com.example.bankcards.util.EncryptionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills in the card number hash of cards created before the column existed. Each batch
+ * decrypts the card numbers, computes their blind index and writes it with one JDBC batch
+ * in its own transaction. Once a run finds nothing left to do, this node stops looking.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CardNumberHashBackfill {
+
+    private final CardRepository cardRepository;
+    private final EncryptionUtils encryptionUtils;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.card.number-hash-backfill.batch-size}")
+    private int batchSize;
+
+    private volatile boolean complete;
+
+    @Scheduled(fixedDelayString = "${app.card.number-hash-backfill.interval}")
+    public void backfill() {
+        if (complete) {
+            return;
+        }
+
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        int total = 0;
+        int updated;
+        do {
+            updated = template.execute(status -> backfillBatch());
+            total += updated;
+        } while (updated == batchSize);
+
+        if (total > 0) {
+            log.info("Backfilled the card number hash of {} cards", total);
+        }
+        complete = true;
+    }
+
+    private int backfillBatch() {
+        List<EncryptedCardNumber> cards = cardRepository.findWithoutCardNumberHash(PageRequest.of(0, batchSize));
+        List<String> cardNumbers = encryptionUtils.decryptAll(
+                cards.stream().map(EncryptedCardNumber::getEncryptedCardNumber).toList());
+
+        Map<Long, String> hashes = new LinkedHashMap<>();
+        for (int i = 0; i < cards.size(); i++) {
+            hashes.put(cards.get(i).getId(), encryptionUtils.blindIndex(cardNumbers.get(i)));
+        }
+        cardRepository.batchUpdateCardNumberHashes(hashes);
+        return cards.size();
+    }
+}
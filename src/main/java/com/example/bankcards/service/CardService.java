@@ -9,20 +9,25 @@ import com.example.bankcards.exception.ConflictException;
 import com.example.bankcards.exception.ForbiddenException;
 import com.example.bankcards.exception.ResourceNotFoundException;
 import com.example.bankcards.repository.*;
+import com.example.bankcards.security.CurrentUser;
 import com.example.bankcards.util.CardNumberUtils;
 import com.example.bankcards.util.EncryptionUtils;
+import com.example.bankcards.util.TransactionRetryExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,26 +35,56 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CardService {
 
+    private static final int MAX_CARD_NUMBER_ATTEMPTS = 3;
+
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final BlockRequestRepository blockRequestRepository;
     private final TransactionRepository transactionRepository;
+    private final SpendingLimitEngine spendingLimitEngine;
+    private final LedgerService ledgerService;
+    private final OutboxService outboxService;
     private final CardNumberUtils cardNumberUtils;
+    private final CardNumberAllocator cardNumberAllocator;
     private final EncryptionUtils encryptionUtils;
+    private final TransactionRetryExecutor retryExecutor;
 
     @Value("${app.card.default-limit}")
     private BigDecimal defaultLimit;
 
-    @Transactional
-    public CardDto createCard(String username, CreateCardRequest request) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    /**
+     * Issues a card with a freshly allocated number. Each attempt runs in its own transaction,
+     * so when another node saved the same number first and the unique index rejects it, the
+     * card is created again with a new number.
+     */
+    public CardDto createCard(CurrentUser currentUser, CreateCardRequest request) {
+        for (int attempt = 1; ; attempt++) {
+            CardNumberAllocator.CardNumber allocated = cardNumberAllocator.allocate();
+            try {
+                return retryExecutor.execute("createCard", Isolation.READ_COMMITTED,
+                        () -> doCreateCard(currentUser, request, allocated));
+            } catch (DataIntegrityViolationException e) {
+                // Only a taken number is worth another attempt; look it up rather than parse the error
+                if (attempt >= MAX_CARD_NUMBER_ATTEMPTS || !cardRepository.existsByCardNumberHash(allocated.hash())) {
+                    throw e;
+                }
+                log.warn("Card number collided with an existing card, retrying with a new number");
+            } finally {
+                cardNumberAllocator.release(allocated);
+            }
+        }
+    }
+
+    private CardDto doCreateCard(CurrentUser currentUser, CreateCardRequest request,
+                                 CardNumberAllocator.CardNumber allocated) {
+        User user = userRepository.getReferenceById(currentUser.getId());
 
-        String cardNumber = cardNumberUtils.generateCardNumber();
+        String cardNumber = allocated.number();
         String cvv = cardNumberUtils.generateCVV();
 
         Card card = Card.builder()
                 .encryptedCardNumber(encryptionUtils.encrypt(cardNumber))
+                .cardNumberHash(allocated.hash())
                 .maskedCardNumber(cardNumberUtils.maskCardNumber(cardNumber))
                 .cardHolderName(request.getCardHolderName() != null ?
                         request.getCardHolderName() : user.getFullName())
@@ -61,23 +96,26 @@ public class CardService {
                         request.getInitialBalance() : BigDecimal.ZERO)
                 .dailyLimit(request.getDailyLimit() != null ?
                         request.getDailyLimit() : defaultLimit)
+                .weeklyLimit(request.getWeeklyLimit())
+                .monthlyLimit(request.getMonthlyLimit())
                 .owner(user)
                 .build();
 
-        Card savedCard = cardRepository.save(card);
+        Card savedCard = cardRepository.saveAndFlush(card);
+        ledgerService.recordOpening(savedCard);
         log.info("Card created for user: {} with masked number: {}",
-                username, savedCard.getMaskedCardNumber());
+                currentUser.getUsername(), savedCard.getMaskedCardNumber());
 
         return mapToCardDto(savedCard);
     }
 
     @Transactional(readOnly = true)
-    public CardDto getCardById(Long cardId, String username) {
+    public CardDto getCardById(Long cardId, CurrentUser currentUser) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
 
         // Check if user owns the card or is admin
-        if (!card.getOwner().getUsername().equals(username) && !isAdmin(username)) {
+        if (!currentUser.owns(card.getOwner().getId()) && !currentUser.isAdmin()) {
             throw new ForbiddenException("You don't have permission to view this card");
         }
 
@@ -85,20 +123,14 @@ public class CardService {
     }
 
     @Transactional(readOnly = true)
-    public CardDetailsDto getCardDetails(Long cardId, String username) {
+    public CardDetailsDto getCardDetails(Long cardId, CurrentUser currentUser) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
 
-        if (!card.getOwner().getUsername().equals(username) && !isAdmin(username)) {
+        if (!currentUser.owns(card.getOwner().getId()) && !currentUser.isAdmin()) {
             throw new ForbiddenException("You don't have permission to view this card");
         }
 
-        LocalDateTime startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
-        LocalDateTime startOfNextDay = startOfDay.plusDays(1);
-
-        BigDecimal todaySpent = transactionRepository.getTodaySpentAmount(
-                card, Transaction.TransactionStatus.COMPLETED, startOfDay, startOfNextDay);
-
         return CardDetailsDto.builder()
                 .id(card.getId())
                 .maskedCardNumber(card.getMaskedCardNumber())
@@ -106,9 +138,13 @@ public class CardService {
                 .expiryDate(card.getExpiryDate())
                 .status(card.getStatus())
                 .cardType(card.getCardType())
-                .balance(card.getBalance())
+                .balance(ledgerService.getBalance(card))
                 .dailyLimit(card.getDailyLimit())
-                .todaySpent(todaySpent != null ? todaySpent : BigDecimal.ZERO)
+                .weeklyLimit(card.getWeeklyLimit())
+                .monthlyLimit(card.getMonthlyLimit())
+                .todaySpent(spendingLimitEngine.getSpent(card.getId(), SpendingLimitEngine.Window.DAILY))
+                .weekSpent(spendingLimitEngine.getSpent(card.getId(), SpendingLimitEngine.Window.WEEKLY))
+                .monthSpent(spendingLimitEngine.getSpent(card.getId(), SpendingLimitEngine.Window.MONTHLY))
                 .ownerName(card.getOwner().getFullName())
                 .ownerEmail(card.getOwner().getEmail())
                 .blockReason(card.getBlockReason())
@@ -118,9 +154,8 @@ public class CardService {
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<CardDto> getUserCards(String username, Pageable pageable) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    public PageResponse<CardDto> getUserCards(CurrentUser currentUser, Pageable pageable) {
+        User user = userRepository.getReferenceById(currentUser.getId());
 
         Page<Card> cardPage = cardRepository.findByOwner(user, pageable);
         return mapToPageResponse(cardPage);
@@ -133,31 +168,32 @@ public class CardService {
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<CardDto> searchUserCards(String username, String searchTerm, Pageable pageable) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        Page<Card> cardPage = cardRepository.searchUserCards(user.getId(), searchTerm, pageable);
+    public PageResponse<CardDto> searchUserCards(CurrentUser currentUser, String searchTerm, Pageable pageable) {
+        Page<Card> cardPage = cardRepository.searchUserCards(currentUser.getId(), searchTerm, pageable);
         return mapToPageResponse(cardPage);
     }
 
     @Transactional(readOnly = true)
-    public List<CardDto> getActiveUserCards(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    public List<CardDto> getActiveUserCards(CurrentUser currentUser) {
+        User user = userRepository.getReferenceById(currentUser.getId());
 
         List<Card> activeCards = cardRepository.findActiveCardsByOwner(user, CardStatus.ACTIVE);
+        Map<Long, BigDecimal> balances = ledgerService.getBalances(activeCards);
         return activeCards.stream()
-                .map(this::mapToCardDto)
+                .map(card -> mapToCardDto(card, balances.get(card.getId())))
                 .collect(Collectors.toList());
     }
 
-    @Transactional
-    public CardDto updateCard(Long cardId, UpdateCardRequest request, String username) {
+    public CardDto updateCard(Long cardId, UpdateCardRequest request, CurrentUser currentUser) {
+        return retryExecutor.execute("updateCard", Isolation.READ_COMMITTED,
+                () -> doUpdateCard(cardId, request, currentUser));
+    }
+
+    private CardDto doUpdateCard(Long cardId, UpdateCardRequest request, CurrentUser currentUser) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
 
-        if (!isAdmin(username)) {
+        if (!currentUser.isAdmin()) {
             throw new ForbiddenException("Only administrators can update cards");
         }
 
@@ -172,21 +208,28 @@ public class CardService {
             card.setDailyLimit(request.getDailyLimit());
         }
 
+        if (request.getWeeklyLimit() != null) {
+            card.setWeeklyLimit(request.getWeeklyLimit());
+        }
+
+        if (request.getMonthlyLimit() != null) {
+            card.setMonthlyLimit(request.getMonthlyLimit());
+        }
+
         Card updatedCard = cardRepository.save(card);
-        log.info("Card {} updated by admin: {}", cardId, username);
+        log.info("Card {} updated by admin: {}", cardId, currentUser.getUsername());
 
         return mapToCardDto(updatedCard);
     }
 
     @Transactional
-    public void requestBlockCard(String username, BlockCardRequest request) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    public void requestBlockCard(CurrentUser currentUser, BlockCardRequest request) {
+        User user = userRepository.getReferenceById(currentUser.getId());
 
         Card card = cardRepository.findById(request.getCardId())
                 .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
 
-        if (!card.getOwner().equals(user)) {
+        if (!currentUser.owns(card.getOwner().getId())) {
             throw new ForbiddenException("You can only request to block your own cards");
         }
 
@@ -208,12 +251,16 @@ public class CardService {
                 .build();
 
         blockRequestRepository.save(blockRequest);
-        log.info("Block request created for card {} by user {}", card.getId(), username);
+        log.info("Block request created for card {} by user {}", card.getId(), currentUser.getUsername());
     }
 
-    @Transactional
-    public CardDto blockCard(Long cardId, String reason, String adminUsername) {
-        if (!isAdmin(adminUsername)) {
+    public CardDto blockCard(Long cardId, String reason, CurrentUser admin) {
+        return retryExecutor.execute("blockCard", Isolation.READ_COMMITTED,
+                () -> doBlockCard(cardId, reason, admin));
+    }
+
+    private CardDto doBlockCard(Long cardId, String reason, CurrentUser admin) {
+        if (!admin.isAdmin()) {
             throw new ForbiddenException("Only administrators can block cards");
         }
 
@@ -229,14 +276,19 @@ public class CardService {
         card.setBlockedAt(LocalDateTime.now());
 
         Card blockedCard = cardRepository.save(card);
-        log.info("Card {} blocked by admin: {}", cardId, adminUsername);
+        outboxService.recordCardBlocked(blockedCard, null);
+        log.info("Card {} blocked by admin: {}", cardId, admin.getUsername());
 
         return mapToCardDto(blockedCard);
     }
 
-    @Transactional
-    public CardDto unblockCard(Long cardId, String adminUsername) {
-        if (!isAdmin(adminUsername)) {
+    public CardDto unblockCard(Long cardId, CurrentUser admin) {
+        return retryExecutor.execute("unblockCard", Isolation.READ_COMMITTED,
+                () -> doUnblockCard(cardId, admin));
+    }
+
+    private CardDto doUnblockCard(Long cardId, CurrentUser admin) {
+        if (!admin.isAdmin()) {
             throw new ForbiddenException("Only administrators can unblock cards");
         }
 
@@ -252,14 +304,15 @@ public class CardService {
         card.setBlockedAt(null);
 
         Card unblockedCard = cardRepository.save(card);
-        log.info("Card {} unblocked by admin: {}", cardId, adminUsername);
+        outboxService.recordCardUnblocked(unblockedCard);
+        log.info("Card {} unblocked by admin: {}", cardId, admin.getUsername());
 
         return mapToCardDto(unblockedCard);
     }
 
     @Transactional
-    public void deleteCard(Long cardId, String adminUsername) {
-        if (!isAdmin(adminUsername)) {
+    public void deleteCard(Long cardId, CurrentUser admin) {
+        if (!admin.isAdmin()) {
             throw new ForbiddenException("Only administrators can delete cards");
         }
 
@@ -267,13 +320,29 @@ public class CardService {
             throw new ResourceNotFoundException("Card not found");
         }
 
+        // Only cards without history are deleted. Deleting the card would take its transfers
+        // with it, and with them the counterparties' history and postings; on Postgres nothing
+        // references the partitioned transactions table, so those rows would be orphaned
+        // instead. The same check keeps idempotency keys from pointing at deleted transfers.
+        if (ledgerService.hasEntries(cardId)
+                || transactionRepository.existsBySourceCardIdOrDestinationCardId(cardId, cardId)) {
+            throw new ConflictException("Card has transaction history and cannot be deleted; block it instead");
+        }
+
         cardRepository.deleteById(cardId);
-        log.info("Card {} deleted by admin: {}", cardId, adminUsername);
+        log.info("Card {} deleted by admin: {}", cardId, admin.getUsername());
     }
 
-    @Transactional
-    public void processBlockRequest(Long requestId, boolean approve, String adminComment, String adminUsername) {
-        if (!isAdmin(adminUsername)) {
+    public void processBlockRequest(Long requestId, boolean approve, String adminComment, CurrentUser admin) {
+        retryExecutor.execute("processBlockRequest", Isolation.READ_COMMITTED, () -> {
+            doProcessBlockRequest(requestId, approve, adminComment, admin);
+            return null;
+        });
+    }
+
+    private void doProcessBlockRequest(Long requestId, boolean approve, String adminComment,
+                                       CurrentUser admin) {
+        if (!admin.isAdmin()) {
             throw new ForbiddenException("Only administrators can process block requests");
         }
 
@@ -284,12 +353,11 @@ public class CardService {
             throw new BadRequestException("Block request has already been processed");
         }
 
-        User admin = userRepository.findByUsername(adminUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("Admin user not found"));
+        User processedBy = userRepository.getReferenceById(admin.getId());
 
         blockRequest.setStatus(approve ? BlockRequest.RequestStatus.APPROVED : BlockRequest.RequestStatus.REJECTED);
         blockRequest.setProcessedAt(LocalDateTime.now());
-        blockRequest.setProcessedBy(admin);
+        blockRequest.setProcessedBy(processedBy);
         blockRequest.setAdminComment(adminComment);
 
         if (approve) {
@@ -298,21 +366,21 @@ public class CardService {
             card.setBlockReason(blockRequest.getReason());
             card.setBlockedAt(LocalDateTime.now());
             cardRepository.save(card);
+            outboxService.recordCardBlocked(card, blockRequest);
+        } else {
+            outboxService.recordBlockRequestRejected(blockRequest);
         }
 
         blockRequestRepository.save(blockRequest);
         log.info("Block request {} {} by admin: {}", requestId,
-                approve ? "approved" : "rejected", adminUsername);
+                approve ? "approved" : "rejected", admin.getUsername());
     }
 
-    private boolean isAdmin(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        return user.getRoles().stream()
-                .anyMatch(role -> role.getName() == Role.RoleName.ROLE_ADMIN);
+    private CardDto mapToCardDto(Card card) {
+        return mapToCardDto(card, ledgerService.getBalance(card));
     }
 
-    private CardDto mapToCardDto(Card card) {
+    private CardDto mapToCardDto(Card card, BigDecimal balance) {
         return CardDto.builder()
                 .id(card.getId())
                 .maskedCardNumber(card.getMaskedCardNumber())
@@ -320,8 +388,10 @@ public class CardService {
                 .expiryDate(card.getExpiryDate())
                 .status(card.getStatus())
                 .cardType(card.getCardType())
-                .balance(card.getBalance())
+                .balance(balance)
                 .dailyLimit(card.getDailyLimit())
+                .weeklyLimit(card.getWeeklyLimit())
+                .monthlyLimit(card.getMonthlyLimit())
                 .ownerUsername(card.getOwner().getUsername())
                 .createdAt(card.getCreatedAt())
                 .updatedAt(card.getUpdatedAt())
@@ -329,9 +399,10 @@ public class CardService {
     }
 
     private PageResponse<CardDto> mapToPageResponse(Page<Card> cardPage) {
+        Map<Long, BigDecimal> balances = ledgerService.getBalances(cardPage.getContent());
         return PageResponse.<CardDto>builder()
                 .content(cardPage.getContent().stream()
-                        .map(this::mapToCardDto)
+                        .map(card -> mapToCardDto(card, balances.get(card.getId())))
                         .collect(Collectors.toList()))
                 .pageNumber(cardPage.getNumber())
                 .pageSize(cardPage.getSize())
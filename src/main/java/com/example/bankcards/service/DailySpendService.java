@@ -0,0 +1,79 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.card.DailySpendMismatchDto;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.CardDailySpendRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Maintenance of the card_daily_spend counters: backfilling them from the transactions table
+ * and checking that they still agree with the raw SUM.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailySpendService {
+
+    private final CardDailySpendRepository cardDailySpendRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.daily-spend.auto-repair}")
+    private boolean autoRepair;
+
+    /**
+     * Recomputes the counters for the given days (inclusive). Running it for the current day
+     * while transfers are in flight may briefly undercount, so prefer closed days.
+     */
+    @Transactional
+    public int backfill(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("Start day must not be after end day");
+        }
+
+        int rows = cardDailySpendRepository.rebuild(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        log.info("Backfilled {} daily spend counters from {} to {}", rows, from, to);
+        return rows;
+    }
+
+    @Transactional(readOnly = true)
+    public List<DailySpendMismatchDto> findMismatches(LocalDate day) {
+        return cardDailySpendRepository.findMismatches(day, day.atStartOfDay(), day.plusDays(1).atStartOfDay())
+                .stream()
+                .map(row -> DailySpendMismatchDto.builder()
+                        .cardId(((Number) row[0]).longValue())
+                        .day(day)
+                        .counterAmount((BigDecimal) row[1])
+                        .actualAmount((BigDecimal) row[2])
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(cron = "${app.daily-spend.check-cron}")
+    @Transactional
+    public void checkYesterday() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        List<DailySpendMismatchDto> mismatches = findMismatches(yesterday);
+        if (mismatches.isEmpty()) {
+            return;
+        }
+
+        meterRegistry.counter("bankcards.daily_spend.mismatches").increment(mismatches.size());
+        mismatches.forEach(mismatch -> log.warn("Daily spend counter mismatch for card {} on {}: counter {}, actual {}",
+                mismatch.getCardId(), yesterday, mismatch.getCounterAmount(), mismatch.getActualAmount()));
+
+        if (autoRepair) {
+            backfill(yesterday, yesterday);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.transaction.TransactionDto;
+import com.example.bankcards.dto.transaction.TransferRequest;
+import com.example.bankcards.entity.IdempotencyKey;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.exception.ConflictException;
+import com.example.bankcards.repository.IdempotencyKeyRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Makes transfers safe to retry with an Idempotency-Key header. Recently completed keys are
+ * answered from an in-memory LRU, older ones from the idempotency_keys table, and concurrent
+ * duplicates wait for the single in-flight execution instead of starting their own.
+ * Keys are scoped per user; reusing a key with a different request body is rejected.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final TransactionService transactionService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final LruCache<String, CompletedTransfer> recentKeys;
+    private final ConcurrentMap<String, InFlightTransfer> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${app.idempotency.ttl}")
+    private Duration ttl;
+
+    public IdempotencyService(TransactionService transactionService,
+                              IdempotencyKeyRepository idempotencyKeyRepository,
+                              @Value("${app.idempotency.cache-size}") int cacheSize) {
+        this.transactionService = transactionService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.recentKeys = new LruCache<>(cacheSize);
+    }
+
+    public TransactionDto transfer(CurrentUser currentUser, String key, TransferRequest request) {
+        if (key == null || key.isBlank()) {
+            return transactionService.transfer(currentUser, request);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must not exceed " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String scopedKey = currentUser.getUsername() + ":" + key;
+        String requestHash = fingerprint(request);
+
+        CompletedTransfer completed = recentKeys.get(scopedKey);
+        if (completed != null) {
+            return replay(completed.requestHash(), requestHash, completed.transaction());
+        }
+
+        InFlightTransfer mine = new InFlightTransfer(requestHash, new CompletableFuture<>());
+        InFlightTransfer running = inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            return awaitDuplicate(running, requestHash);
+        }
+
+        try {
+            TransactionDto result = executeOnce(currentUser, key, request, requestHash);
+            recentKeys.put(scopedKey, new CompletedTransfer(requestHash, result), expiresAtMillis());
+            mine.result().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval}")
+    @Transactional
+    public void purgeExpiredKeys() {
+        int deleted = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private TransactionDto executeOnce(CurrentUser currentUser, String key, TransferRequest request,
+                                       String requestHash) {
+        String username = currentUser.getUsername();
+        Optional<IdempotencyKey> stored = idempotencyKeyRepository.findByUsernameAndKey(username, key);
+        if (stored.isPresent()) {
+            return replayStored(stored.get(), requestHash);
+        }
+
+        IdempotencyKey idempotencyKey = IdempotencyKey.builder()
+                .key(key)
+                .username(username)
+                .requestHash(requestHash)
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .build();
+
+        try {
+            return transactionService.transfer(currentUser, request, idempotencyKey);
+        } catch (DataIntegrityViolationException e) {
+            // Another node committed the same key first; its transfer is the one that counts
+            IdempotencyKey winner = idempotencyKeyRepository.findByUsernameAndKey(username, key)
+                    .orElseThrow(() -> e);
+            return replayStored(winner, requestHash);
+        }
+    }
+
+    private TransactionDto replayStored(IdempotencyKey stored, String requestHash) {
+        TransactionDto transaction = transactionService.getTransaction(stored.getTransaction().getId());
+        return replay(stored.getRequestHash(), requestHash, transaction);
+    }
+
+    private TransactionDto replay(String storedHash, String requestHash, TransactionDto transaction) {
+        if (!storedHash.equals(requestHash)) {
+            throw new ConflictException("Idempotency-Key has already been used for a different request");
+        }
+        log.debug("Replaying transfer {} for repeated idempotency key", transaction.getTransactionId());
+        return transaction;
+    }
+
+    private TransactionDto awaitDuplicate(InFlightTransfer running, String requestHash) {
+        if (!running.requestHash().equals(requestHash)) {
+            throw new ConflictException("Idempotency-Key has already been used for a different request");
+        }
+        try {
+            return running.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private long expiresAtMillis() {
+        return LocalDateTime.now().plus(ttl).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private String fingerprint(TransferRequest request) {
+        String canonical = request.getSourceCardId() + "|" + request.getDestinationCardId() + "|" +
+                (request.getAmount() != null ? request.getAmount().stripTrailingZeros().toPlainString() : "") +
+                "|" + (request.getDescription() != null ? request.getDescription() : "");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record CompletedTransfer(String requestHash, TransactionDto transaction) {
+    }
+
+    private record InFlightTransfer(String requestHash, CompletableFuture<TransactionDto> result) {
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.LedgerEntry;
+import com.example.bankcards.entity.LedgerEntry.EntryType;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.ResourceNotFoundException;
+import com.example.bankcards.repository.CardBalanceSnapshotRepository;
+import com.example.bankcards.repository.LedgerEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only double-entry ledger of card balances. Every completed transfer is recorded
+ * as a debit of the source card and a credit of the destination card; a periodic job
+ * condenses the entries into card_balance_snapshots so a balance at any point in time is
+ * one snapshot plus the few entries after it.
+ * <p>
+ * In DUAL mode cards.balance is still updated with every transfer and remains the balance
+ * served to clients. In LEDGER_ONLY mode transfers leave the card rows untouched and all
+ * balances are derived from the ledger.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerService {
+
+    // Lower bound for the first snapshot run, before any snapshot exists
+    private static final LocalDateTime LEDGER_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final CardBalanceSnapshotRepository cardBalanceSnapshotRepository;
+
+    @Value("${app.ledger.mode}")
+    private LedgerMode mode;
+
+    @Value("${app.ledger.snapshot-lag}")
+    private Duration snapshotLag;
+
+    public enum LedgerMode {
+        DUAL,
+        LEDGER_ONLY
+    }
+
+    public boolean isLedgerOnly() {
+        return mode == LedgerMode.LEDGER_ONLY;
+    }
+
+    /**
+     * Records the debit and credit of each completed transfer with one batched insert.
+     * The transactions must already have their ids assigned.
+     */
+    public void recordTransfers(List<Transaction> transactions) {
+        LocalDateTime now = LocalDateTime.now();
+        List<LedgerEntry> entries = new ArrayList<>(transactions.size() * 2);
+        for (Transaction transaction : transactions) {
+            entries.add(entry(transaction.getSourceCard(), transaction, EntryType.DEBIT,
+                    transaction.getAmount(), now));
+            entries.add(entry(transaction.getDestinationCard(), transaction, EntryType.CREDIT,
+                    transaction.getAmount(), now));
+        }
+        ledgerEntryRepository.batchInsert(entries);
+    }
+
+    /**
+     * Records the balance a newly created card starts with.
+     */
+    public void recordOpening(Card card) {
+        if (card.getBalance() == null || card.getBalance().signum() == 0) {
+            return;
+        }
+        EntryType type = card.getBalance().signum() > 0 ? EntryType.CREDIT : EntryType.DEBIT;
+        ledgerEntryRepository.batchInsert(List.of(
+                entry(card, null, type, card.getBalance().abs(), LocalDateTime.now())));
+    }
+
+    /**
+     * Whether any entry has been posted to the card. Every transfer since the ledger started
+     * posts to both cards, so a card with no entries has no postings a counterparty relies on.
+     */
+    public boolean hasEntries(Long cardId) {
+        return ledgerEntryRepository.existsByCardId(cardId);
+    }
+
+    public BigDecimal getBalance(Card card) {
+        if (!isLedgerOnly()) {
+            return card.getBalance();
+        }
+        return getBalanceAsOf(card.getId(), LocalDateTime.now());
+    }
+
+    /**
+     * Current balances of the given cards, keyed by card id. The returned map is mutable.
+     */
+    public Map<Long, BigDecimal> getBalances(Collection<Card> cards) {
+        if (!isLedgerOnly()) {
+            Map<Long, BigDecimal> balances = new HashMap<>();
+            cards.forEach(card -> balances.put(card.getId(), card.getBalance()));
+            return balances;
+        }
+        if (cards.isEmpty()) {
+            return new HashMap<>();
+        }
+        return getBalancesAsOf(cards.stream().map(Card::getId).collect(Collectors.toSet()), LocalDateTime.now());
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAsOf(Long cardId, LocalDateTime asOf) {
+        BigDecimal balance = getBalancesAsOf(List.of(cardId), asOf).get(cardId);
+        if (balance == null) {
+            throw new ResourceNotFoundException("Card not found");
+        }
+        return balance;
+    }
+
+    /**
+     * Snapshots every card with entries since the previous run. Entries younger than the
+     * configured lag are left for the next run, so a transaction still in flight cannot
+     * commit an entry behind an already written snapshot.
+     */
+    @Scheduled(fixedDelayString = "${app.ledger.snapshot-interval}")
+    @Transactional
+    public int takeSnapshots() {
+        LocalDateTime asOf = LocalDateTime.now().minus(snapshotLag);
+        LocalDateTime since = cardBalanceSnapshotRepository.findLatestSnapshotTime();
+        if (since == null) {
+            since = LEDGER_START;
+        }
+        if (!asOf.isAfter(since)) {
+            return 0;
+        }
+
+        int rows = cardBalanceSnapshotRepository.insertSnapshots(since, asOf);
+        if (rows > 0) {
+            log.info("Wrote {} card balance snapshots as of {}", rows, asOf);
+        }
+        return rows;
+    }
+
+    /**
+     * Overwrites cards.balance with the ledger balances, needed when switching from
+     * LEDGER_ONLY back to DUAL mode.
+     */
+    @Transactional
+    public int syncCardBalances() {
+        int rows = ledgerEntryRepository.syncCardBalances();
+        log.info("Synchronized balances of {} cards from the ledger", rows);
+        return rows;
+    }
+
+    private Map<Long, BigDecimal> getBalancesAsOf(Collection<Long> cardIds, LocalDateTime asOf) {
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        ledgerEntryRepository.findBalancesAsOf(cardIds, asOf)
+                .forEach(row -> balances.put(((Number) row[0]).longValue(), (BigDecimal) row[1]));
+        return balances;
+    }
+
+    private LedgerEntry entry(Card card, Transaction transaction, EntryType type,
+                              BigDecimal amount, LocalDateTime createdAt) {
+        return LedgerEntry.builder()
+                .card(card)
+                .transaction(transaction)
+                .entryType(type)
+                .amount(amount)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.event.CardStatusEvent;
+import com.example.bankcards.dto.event.TransferEvent;
+import com.example.bankcards.entity.BlockRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.entity.OutboxEvent.AggregateType;
+import com.example.bankcards.entity.OutboxEvent.EventType;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Writes domain events to the outbox_events table. Every method must run inside the
+ * transaction of the change it reports, so an event exists if and only if the change
+ * was committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransfers(List<Transaction> transactions) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.batchInsert(transactions.stream()
+                .map(transaction -> transferEvent(transaction, now))
+                .toList());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCardBlocked(Card card, BlockRequest blockRequest) {
+        recordCardEvent(card, EventType.CARD_BLOCKED, card.getBlockReason(), blockRequest);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCardUnblocked(Card card) {
+        recordCardEvent(card, EventType.CARD_UNBLOCKED, null, null);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordBlockRequestRejected(BlockRequest blockRequest) {
+        recordCardEvent(blockRequest.getCard(), EventType.BLOCK_REQUEST_REJECTED,
+                blockRequest.getAdminComment(), blockRequest);
+    }
+
+    private void recordCardEvent(Card card, EventType type, String reason, BlockRequest blockRequest) {
+        LocalDateTime now = LocalDateTime.now();
+        CardStatusEvent payload = CardStatusEvent.builder()
+                .cardId(card.getId())
+                .ownerId(card.getOwner().getId())
+                .status(card.getStatus())
+                .reason(reason)
+                .blockRequestId(blockRequest != null ? blockRequest.getId() : null)
+                .occurredAt(now)
+                .build();
+        outboxEventRepository.batchInsert(List.of(
+                event(AggregateType.CARD, card.getId().toString(), type, payload, now)));
+    }
+
+    private OutboxEvent transferEvent(Transaction transaction, LocalDateTime now) {
+        TransferEvent payload = TransferEvent.builder()
+                .id(transaction.getId())
+                .transactionId(transaction.getTransactionId())
+                .referenceNumber(transaction.getReferenceNumber())
+                .sourceCardId(transaction.getSourceCard().getId())
+                .destinationCardId(transaction.getDestinationCard().getId())
+                .amount(transaction.getAmount())
+                .status(transaction.getStatus())
+                .failureReason(transaction.getFailureReason())
+                .transactionDate(transaction.getTransactionDate())
+                .processedDate(transaction.getProcessedDate())
+                .build();
+        EventType type = transaction.getStatus() == Transaction.TransactionStatus.COMPLETED ?
+                EventType.TRANSFER_COMPLETED : EventType.TRANSFER_FAILED;
+        return event(AggregateType.TRANSACTION, transaction.getTransactionId(), type, payload, now);
+    }
+
+    private OutboxEvent event(AggregateType aggregateType, String aggregateId, EventType type,
+                              Object payload, LocalDateTime createdAt) {
+        try {
+            return OutboxEvent.builder()
+                    .aggregateType(aggregateType)
+                    .aggregateId(aggregateId)
+                    .eventType(type)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(createdAt)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + type + " event", e);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.DailyLimitExceededException;
+import com.example.bankcards.exception.SpendingLimitExceededException;
+import com.example.bankcards.repository.TransactionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Enforces the rolling spending limits of a card without touching the database.
+ * Outgoing amounts are kept in cents in a ring of per-day buckets per card; a window is
+ * the sum of its most recent buckets. Buckets are guarded by a fixed set of striped locks,
+ * so checking and reserving an amount is a few array reads under an uncontended monitor.
+ * <p>
+ * Reservations made inside a transaction are released again if it does not commit.
+ * The buckets are rebuilt from the completed transactions at startup, which makes the
+ * engine authoritative for a single node only, like the card lanes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SpendingLimitEngine {
+
+    // Ring size in days; a power of two no shorter than the longest window
+    private static final int RING_DAYS = 32;
+    private static final int STRIPES = 64;
+    private static final int EMPTY_DAY = Integer.MIN_VALUE;
+
+    private final TransactionRepository transactionRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<Long, Buckets> buckets = new ConcurrentHashMap<>();
+    private final Object[] locks = Arrays.stream(new Object[STRIPES]).map(unused -> new Object()).toArray();
+
+    public enum Window {
+        DAILY(1, "daily", Card::getDailyLimit),
+        WEEKLY(7, "weekly", Card::getWeeklyLimit),
+        MONTHLY(30, "monthly", Card::getMonthlyLimit);
+
+        private final int days;
+        private final String label;
+        private final Function<Card, BigDecimal> limit;
+
+        Window(int days, String label, Function<Card, BigDecimal> limit) {
+            this.days = days;
+            this.label = label;
+            this.limit = limit;
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        LocalDate from = LocalDate.now().minusDays(longestWindow() - 1);
+        List<Object[]> rows = transactionRepository.sumCompletedSpendByCardAndDay(from.atStartOfDay());
+        for (Object[] row : rows) {
+            long cardId = ((Number) row[0]).longValue();
+            int day = (int) toLocalDate(row[1]).toEpochDay();
+            long cents = toCents((BigDecimal) row[2]);
+            synchronized (lockFor(cardId)) {
+                bucketsOf(cardId).add(day, cents);
+            }
+        }
+
+        Gauge.builder("bankcards.spending_limits.cards", buckets, ConcurrentMap::size)
+                .description("Cards with spend tracked by the limit engine")
+                .register(meterRegistry);
+        log.info("Spending limit engine rebuilt from {} card days since {}", rows.size(), from);
+    }
+
+    /**
+     * Checks the amount against every limit configured on the card and, if all of them hold,
+     * counts it towards today's spend. Within a transaction the amount is given back when
+     * the transaction rolls back.
+     */
+    public void reserve(Card card, BigDecimal amount) {
+        long cardId = card.getId();
+        long cents = toCents(amount);
+        int today = (int) LocalDate.now().toEpochDay();
+
+        synchronized (lockFor(cardId)) {
+            Buckets cardBuckets = bucketsOf(cardId);
+            for (Window window : Window.values()) {
+                BigDecimal limit = window.limit.apply(card);
+                if (limit == null) {
+                    continue;
+                }
+                long spent = cardBuckets.sum(today, window.days);
+                if (spent + cents > toCents(limit)) {
+                    throw limitExceeded(window, fromCents(spent), limit);
+                }
+            }
+            cardBuckets.add(today, cents);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(cardId, today, cents);
+                    }
+                }
+            });
+        }
+    }
+
+    public BigDecimal getSpent(Long cardId, Window window) {
+        Buckets cardBuckets = buckets.get(cardId);
+        if (cardBuckets == null) {
+            return fromCents(0);
+        }
+        synchronized (lockFor(cardId)) {
+            return fromCents(cardBuckets.sum((int) LocalDate.now().toEpochDay(), window.days));
+        }
+    }
+
+    /**
+     * Drops cards that have not spent anything within the longest window.
+     */
+    @Scheduled(cron = "${app.spending-limits.evict-cron}")
+    public void evictIdleCards() {
+        int today = (int) LocalDate.now().toEpochDay();
+        int before = buckets.size();
+        buckets.forEach((cardId, cardBuckets) -> {
+            synchronized (lockFor(cardId)) {
+                if (cardBuckets.sum(today, longestWindow()) == 0) {
+                    buckets.remove(cardId, cardBuckets);
+                }
+            }
+        });
+        log.debug("Evicted {} idle cards from the spending limit engine", before - buckets.size());
+    }
+
+    private void release(long cardId, int day, long cents) {
+        synchronized (lockFor(cardId)) {
+            Buckets cardBuckets = buckets.get(cardId);
+            if (cardBuckets != null) {
+                cardBuckets.subtract(day, cents);
+            }
+        }
+    }
+
+    private RuntimeException limitExceeded(Window window, BigDecimal spent, BigDecimal limit) {
+        if (window == Window.DAILY) {
+            return new DailyLimitExceededException(
+                    "Transfer would exceed daily limit. Today spent: " + spent + ", Daily limit: " + limit);
+        }
+        return new SpendingLimitExceededException(
+                "Transfer would exceed " + window.label + " limit. Spent in the last " + window.days +
+                        " days: " + spent + ", " + capitalize(window.label) + " limit: " + limit);
+    }
+
+    // Must be called while holding the card's stripe lock, so eviction cannot race with an update
+    private Buckets bucketsOf(long cardId) {
+        return buckets.computeIfAbsent(cardId, id -> new Buckets());
+    }
+
+    private Object lockFor(long cardId) {
+        long mixed = cardId * 0x9E3779B97F4A7C15L;
+        return locks[(int) (mixed >>> 58) & (STRIPES - 1)];
+    }
+
+    private static int longestWindow() {
+        return Arrays.stream(Window.values()).mapToInt(window -> window.days).max().orElse(1);
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date date ? date.toLocalDate() : (LocalDate) value;
+    }
+
+    private static String capitalize(String value) {
+        return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+
+    /**
+     * Ring of day buckets; each slot remembers which epoch day it holds so that slots left
+     * over from an earlier lap of the ring are ignored and overwritten.
+     */
+    private static final class Buckets {
+
+        private final int[] days = new int[RING_DAYS];
+        private final long[] cents = new long[RING_DAYS];
+
+        private Buckets() {
+            Arrays.fill(days, EMPTY_DAY);
+        }
+
+        long sum(int today, int windowDays) {
+            long total = 0;
+            for (int day = today - windowDays + 1; day <= today; day++) {
+                int slot = day & (RING_DAYS - 1);
+                if (days[slot] == day) {
+                    total += cents[slot];
+                }
+            }
+            return total;
+        }
+
+        void add(int day, long amount) {
+            int slot = day & (RING_DAYS - 1);
+            if (days[slot] != day) {
+                days[slot] = day;
+                cents[slot] = 0;
+            }
+            cents[slot] += amount;
+        }
+
+        void subtract(int day, long amount) {
+            int slot = day & (RING_DAYS - 1);
+            if (days[slot] == day) {
+                cents[slot] -= amount;
+            }
+        }
+    }
+}
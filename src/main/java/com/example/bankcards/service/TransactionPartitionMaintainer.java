@@ -0,0 +1,72 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.TransactionPartitionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Keeps monthly partitions of the transactions table created ahead of time, so transfers
+ * never land in the default partition. A partition that already exists is skipped without
+ * taking a lock, and nodes racing to create the same month are harmless.
+ * <p>
+ * Does nothing when the table is not partitioned, e.g. on databases other than Postgres.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionPartitionMaintainer {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final TransactionPartitionRepository partitionRepository;
+
+    @Value("${app.transaction.partitions.months-ahead}")
+    private int monthsAhead;
+
+    private boolean partitioned;
+
+    @PostConstruct
+    public void start() {
+        try {
+            partitioned = partitionRepository.isPartitioned();
+        } catch (DataAccessException e) {
+            log.info("Transactions table is not partitioned on this database");
+            return;
+        }
+        createUpcomingPartitions();
+    }
+
+    @Scheduled(cron = "${app.transaction.partitions.maintenance-cron}")
+    public void createUpcomingPartitions() {
+        if (!partitioned) {
+            return;
+        }
+
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            String partition = "transactions_" + month.format(PARTITION_SUFFIX);
+            try {
+                if (!partitionRepository.exists(partition)) {
+                    partitionRepository.create(partition, month.atDay(1), month.plusMonths(1).atDay(1));
+                    log.info("Created transaction partition {}", partition);
+                }
+            } catch (DataAccessException e) {
+                log.error("Could not create transaction partition {}: {}", partition, e.getMessage());
+            }
+        }
+
+        long misplaced = partitionRepository.countDefaultPartitionRows();
+        if (misplaced > 0) {
+            log.warn("{} transactions are in the default partition; move them before creating their month", misplaced);
+        }
+    }
+}
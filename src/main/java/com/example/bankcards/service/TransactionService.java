@@ -1,23 +1,34 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.common.CursorPageResponse;
 import com.example.bankcards.dto.common.PageResponse;
 import com.example.bankcards.dto.transaction.*;
 import com.example.bankcards.entity.*;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.*;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.util.CardLaneDispatcher;
+import com.example.bankcards.util.PageCursor;
 import com.example.bankcards.util.TransactionIdGenerator;
+import com.example.bankcards.util.TransactionRetryExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,10 +36,26 @@ import java.util.stream.Collectors;
 @Slf4j
 public class TransactionService {
 
+    // Same cap as spring.data.web.pageable.max-page-size for offset pages
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    // The only order findByUserId returns; it is also the default of the my-transactions endpoint
+    private static final Sort USER_TRANSACTIONS_SORT = Sort.by(Sort.Direction.DESC, "transactionDate");
+
     private final TransactionRepository transactionRepository;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final CardDailySpendRepository cardDailySpendRepository;
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionRetryExecutor retryExecutor;
+    private final CardLaneDispatcher cardLaneDispatcher;
+    private final SpendingLimitEngine spendingLimitEngine;
+    private final LedgerService ledgerService;
+    private final OutboxService outboxService;
+    private final Validator validator;
+
+    @Value("${app.transfer.locking-mode}")
+    private LockingMode lockingMode;
 
     @Value("${app.card.max-transfer-amount}")
     private BigDecimal maxTransferAmount;
@@ -36,116 +63,341 @@ public class TransactionService {
     @Value("${app.card.min-balance}")
     private BigDecimal minBalance;
 
-    @Transactional(isolation = Isolation.SERIALIZABLE)
-    public TransactionDto transfer(String username, TransferRequest request) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    /**
+     * SERIALIZABLE relies on Postgres to abort conflicting transfers, PESSIMISTIC locks both
+     * card rows (SELECT ... FOR UPDATE) in ascending id order under READ COMMITTED so that
+     * concurrent transfers on the same cards queue up instead of failing. OPTIMISTIC reads
+     * without locks under READ COMMITTED and relies on the card version column; a stale
+     * version makes the retry executor replay the transfer against fresh card state.
+     */
+    public enum LockingMode {
+        SERIALIZABLE,
+        PESSIMISTIC,
+        OPTIMISTIC
+    }
 
-        Card sourceCard = cardRepository.findById(request.getSourceCardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Source card not found"));
+    @PostConstruct
+    public void checkLedgerMode() {
+        // Without card row updates there is no version left for optimistic locking to conflict on
+        if (ledgerService.isLedgerOnly() && lockingMode == LockingMode.OPTIMISTIC) {
+            throw new IllegalStateException("Ledger-only mode requires PESSIMISTIC or SERIALIZABLE transfer locking");
+        }
+    }
 
-        Card destinationCard = cardRepository.findById(request.getDestinationCardId())
-                .orElseThrow(() -> new ResourceNotFoundException("Destination card not found"));
+    public TransactionDto transfer(CurrentUser currentUser, TransferRequest request) {
+        return transfer(currentUser, request, null);
+    }
 
-        // Validate ownership
-        if (!sourceCard.getOwner().equals(user)) {
-            throw new ForbiddenException("You can only transfer from your own cards");
+    /**
+     * Same as {@link #transfer(CurrentUser, TransferRequest)}, additionally persisting the given
+     * idempotency key in the transfer transaction so the key and the money movement commit
+     * or roll back together.
+     */
+    public TransactionDto transfer(CurrentUser currentUser, TransferRequest request, IdempotencyKey idempotencyKey) {
+        Isolation isolation = lockingMode == LockingMode.SERIALIZABLE ?
+                Isolation.SERIALIZABLE : Isolation.READ_COMMITTED;
+        return cardLaneDispatcher.execute(request.getSourceCardId(), request.getDestinationCardId(),
+                () -> retryExecutor.execute("transfer", isolation, () -> doTransfer(currentUser, request, idempotencyKey)));
+    }
+
+    private TransactionDto doTransfer(CurrentUser currentUser, TransferRequest request, IdempotencyKey idempotencyKey) {
+        User user = userRepository.getReferenceById(currentUser.getId());
+
+        // Lock in ascending id order so two opposite transfers can never deadlock
+        Card sourceCard;
+        Card destinationCard;
+        if (request.getSourceCardId() <= request.getDestinationCardId()) {
+            sourceCard = loadCardForTransfer(request.getSourceCardId(), "Source");
+            destinationCard = loadCardForTransfer(request.getDestinationCardId(), "Destination");
+        } else {
+            destinationCard = loadCardForTransfer(request.getDestinationCardId(), "Destination");
+            sourceCard = loadCardForTransfer(request.getSourceCardId(), "Source");
         }
 
-        if (!destinationCard.getOwner().equals(user)) {
-            throw new ForbiddenException("You can only transfer to your own cards");
+        BigDecimal sourceBalance = ledgerService.getBalance(sourceCard);
+        validateTransfer(user, sourceCard, destinationCard, request.getAmount(), sourceBalance);
+        spendingLimitEngine.reserve(sourceCard, request.getAmount());
+
+        Transaction transaction = newTransferTransaction(
+                sourceCard, destinationCard, request.getAmount(), request.getDescription(), sourceBalance);
+
+        Transaction savedTransaction;
+        try {
+            // Process transfer
+            if (!ledgerService.isLedgerOnly()) {
+                sourceCard.setBalance(sourceCard.getBalance().subtract(request.getAmount()));
+                destinationCard.setBalance(destinationCard.getBalance().add(request.getAmount()));
+                cardRepository.save(sourceCard);
+                cardRepository.save(destinationCard);
+            }
+
+            transaction.setBalanceAfter(sourceBalance.subtract(request.getAmount()));
+            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+            transaction.setProcessedDate(LocalDateTime.now());
+
+            savedTransaction = transactionRepository.save(transaction);
+            ledgerService.recordTransfers(List.of(savedTransaction));
+            outboxService.recordTransfers(List.of(savedTransaction));
+            cardDailySpendRepository.addSpend(sourceCard.getId(),
+                    transaction.getTransactionDate().toLocalDate(), request.getAmount());
+
+        } catch (RuntimeException e) {
+            if (retryExecutor.isTransient(e)) {
+                throw e;
+            }
+
+            transaction.setStatus(Transaction.TransactionStatus.FAILED);
+            transaction.setFailureReason(e.getMessage());
+            transactionRepository.save(transaction);
+
+            log.error("Transfer failed: {}", e.getMessage());
+            throw new InvalidTransactionException("Transfer failed: " + e.getMessage());
         }
 
-        // Validate cards are not the same
-        if (sourceCard.getId().equals(destinationCard.getId())) {
-            throw new BadRequestException("Cannot transfer to the same card");
+        // A fresh row per attempt, so a rolled back attempt leaves no stale id behind.
+        // A concurrent request with the same key surfaces here as a unique constraint violation.
+        if (idempotencyKey != null) {
+            idempotencyKeyRepository.saveAndFlush(IdempotencyKey.builder()
+                    .key(idempotencyKey.getKey())
+                    .username(idempotencyKey.getUsername())
+                    .requestHash(idempotencyKey.getRequestHash())
+                    .expiresAt(idempotencyKey.getExpiresAt())
+                    .transaction(savedTransaction)
+                    .build());
         }
 
-        // Validate card status
-        validateCardForTransaction(sourceCard, "Source");
-        validateCardForTransaction(destinationCard, "Destination");
+        log.info("Transfer completed: {} from card {} to card {}",
+                request.getAmount(), sourceCard.getId(), destinationCard.getId());
 
-        // Validate amount
-        validateTransferAmount(request.getAmount());
+        return mapToTransactionDto(savedTransaction);
+    }
 
-        // Check balance
-        if (sourceCard.getBalance().compareTo(request.getAmount()) < 0) {
-            throw new InsufficientFundsException("Insufficient funds on source card");
-        }
+    /**
+     * Executes many transfers of one user in a single transaction: all involved cards are
+     * locked with one query, every item is validated in memory against the running
+     * balances, and the resulting rows are written with one JDBC batch. An item that
+     * fails validation is reported in its result and does not affect the others.
+     */
+    public BatchTransferResponse transferBatch(CurrentUser currentUser, List<TransferRequest> transfers) {
+        return retryExecutor.execute("transferBatch", Isolation.READ_COMMITTED,
+                () -> doTransferBatch(currentUser, transfers));
+    }
 
-        // Check minimum balance
-        BigDecimal balanceAfter = sourceCard.getBalance().subtract(request.getAmount());
-        if (balanceAfter.compareTo(minBalance) < 0) {
-            throw new InsufficientFundsException(
-                    "Transfer would result in balance below minimum required: " + minBalance);
+    private BatchTransferResponse doTransferBatch(CurrentUser currentUser, List<TransferRequest> transfers) {
+        User user = userRepository.getReferenceById(currentUser.getId());
+
+        Set<Long> cardIds = new TreeSet<>();
+        for (TransferRequest item : transfers) {
+            if (item == null) {
+                continue;
+            }
+            if (item.getSourceCardId() != null) {
+                cardIds.add(item.getSourceCardId());
+            }
+            if (item.getDestinationCardId() != null) {
+                cardIds.add(item.getDestinationCardId());
+            }
         }
 
-        // Check daily limit
-        checkDailyLimit(sourceCard, request.getAmount());
+        Map<Long, Card> cards = cardRepository.findAllByIdForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+        Map<Long, BigDecimal> balances = ledgerService.getBalances(cards.values());
+
+        List<BatchTransferItemResult> results = new ArrayList<>(transfers.size());
+        List<Transaction> completed = new ArrayList<>();
+        Map<Integer, Transaction> completedByIndex = new HashMap<>();
+
+        for (int index = 0; index < transfers.size(); index++) {
+            TransferRequest item = transfers.get(index);
+            try {
+                validateBatchItem(item);
+
+                Card sourceCard = cards.get(item.getSourceCardId());
+                if (sourceCard == null) {
+                    throw new ResourceNotFoundException("Source card not found");
+                }
+                Card destinationCard = cards.get(item.getDestinationCardId());
+                if (destinationCard == null) {
+                    throw new ResourceNotFoundException("Destination card not found");
+                }
+
+                BigDecimal sourceBalance = balances.get(sourceCard.getId());
+                validateTransfer(user, sourceCard, destinationCard, item.getAmount(), sourceBalance);
+                spendingLimitEngine.reserve(sourceCard, item.getAmount());
+
+                Transaction transaction = newTransferTransaction(
+                        sourceCard, destinationCard, item.getAmount(), item.getDescription(), sourceBalance);
+                completeTransfer(transaction, sourceCard, destinationCard, balances);
+
+                completed.add(transaction);
+                completedByIndex.put(index, transaction);
+                results.add(null);
+            } catch (ResourceNotFoundException | ForbiddenException | BadRequestException |
+                     InsufficientFundsException | DailyLimitExceededException |
+                     SpendingLimitExceededException | CardBlockedException | CardExpiredException |
+                     InvalidTransactionException e) {
+                results.add(BatchTransferItemResult.builder()
+                        .index(index)
+                        .success(false)
+                        .error(e.getMessage())
+                        .build());
+            }
+        }
 
-        // Create transaction
-        Transaction transaction = Transaction.builder()
-                .transactionId(transactionIdGenerator.generateTransactionId())
-                .sourceCard(sourceCard)
-                .destinationCard(destinationCard)
-                .amount(request.getAmount())
-                .type(Transaction.TransactionType.TRANSFER)
-                .status(Transaction.TransactionStatus.PENDING)
-                .description(request.getDescription() != null ?
-                        request.getDescription() : "Transfer between own cards")
-                .transactionDate(LocalDateTime.now())
-                .referenceNumber(transactionIdGenerator.generateReferenceNumber())
-                .balanceBefore(sourceCard.getBalance())
+        // Card balance updates are flushed at commit through Hibernate's update batching
+        transactionRepository.batchInsert(completed);
+        ledgerService.recordTransfers(completed);
+        recordDailySpend(completed);
+        outboxService.recordTransfers(completed);
+
+        completedByIndex.forEach((index, transaction) -> results.set(index, BatchTransferItemResult.builder()
+                .index(index)
+                .success(true)
+                .transaction(mapToTransactionDto(transaction))
+                .build()));
+
+        log.info("Batch transfer by {}: {} of {} transfers completed",
+                currentUser.getUsername(), completed.size(), transfers.size());
+
+        return BatchTransferResponse.builder()
+                .total(transfers.size())
+                .succeeded(completed.size())
+                .failed(transfers.size() - completed.size())
+                .results(results)
                 .build();
+    }
 
-        try {
-            // Process transfer
-            sourceCard.setBalance(sourceCard.getBalance().subtract(request.getAmount()));
-            destinationCard.setBalance(destinationCard.getBalance().add(request.getAmount()));
+    /**
+     * First half of an asynchronous transfer: runs the cheap validations against the current
+     * card state and persists the transfer as PENDING without touching any balance.
+     * The transfer is executed later by {@link #processPendingTransfers(List)}.
+     */
+    public TransactionDto createPendingTransfer(CurrentUser currentUser, TransferRequest request) {
+        return retryExecutor.execute("createPendingTransfer", Isolation.READ_COMMITTED,
+                () -> doCreatePendingTransfer(currentUser, request));
+    }
 
-            transaction.setBalanceAfter(sourceCard.getBalance());
-            transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
-            transaction.setProcessedDate(LocalDateTime.now());
+    private TransactionDto doCreatePendingTransfer(CurrentUser currentUser, TransferRequest request) {
+        User user = userRepository.getReferenceById(currentUser.getId());
+        Card sourceCard = cardRepository.findById(request.getSourceCardId())
+                .orElseThrow(() -> new ResourceNotFoundException("Source card not found"));
+        Card destinationCard = cardRepository.findById(request.getDestinationCardId())
+                .orElseThrow(() -> new ResourceNotFoundException("Destination card not found"));
 
-            cardRepository.save(sourceCard);
-            cardRepository.save(destinationCard);
-            Transaction savedTransaction = transactionRepository.save(transaction);
+        validateTransfer(user, sourceCard, destinationCard, request.getAmount(), ledgerService.getBalance(sourceCard));
 
-            log.info("Transfer completed: {} from card {} to card {}",
-                    request.getAmount(), sourceCard.getId(), destinationCard.getId());
+        Transaction transaction = newTransferTransaction(
+                sourceCard, destinationCard, request.getAmount(), request.getDescription(), null);
+        Transaction savedTransaction = transactionRepository.save(transaction);
+        log.info("Transfer {} accepted for asynchronous processing", savedTransaction.getTransactionId());
 
-            return mapToTransactionDto(savedTransaction);
+        return mapToTransactionDto(savedTransaction);
+    }
 
-        } catch (Exception e) {
-            transaction.setStatus(Transaction.TransactionStatus.FAILED);
-            transaction.setFailureReason(e.getMessage());
-            transactionRepository.save(transaction);
+    /**
+     * Executes the given pending transfers in one database transaction. Rows already taken
+     * by another worker or no longer PENDING are skipped, so an id may safely be submitted
+     * more than once. Every transfer that cannot be executed is marked FAILED with the reason.
+     */
+    public int processPendingTransfers(List<Long> transactionIds) {
+        return retryExecutor.execute("processPendingTransfers", Isolation.READ_COMMITTED,
+                () -> doProcessPendingTransfers(transactionIds));
+    }
 
-            log.error("Transfer failed: {}", e.getMessage());
-            throw new InvalidTransactionException("Transfer failed: " + e.getMessage());
+    private int doProcessPendingTransfers(List<Long> transactionIds) {
+        List<Transaction> pending = transactionRepository.findPendingForUpdateSkipLocked(
+                transactionIds, Transaction.TransactionStatus.PENDING);
+        if (pending.isEmpty()) {
+            return 0;
         }
+
+        Set<Long> cardIds = new TreeSet<>();
+        pending.forEach(transaction -> {
+            cardIds.add(transaction.getSourceCard().getId());
+            cardIds.add(transaction.getDestinationCard().getId());
+        });
+        Map<Long, Card> cards = cardRepository.findAllByIdForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+        Map<Long, BigDecimal> balances = ledgerService.getBalances(cards.values());
+
+        List<Transaction> completed = new ArrayList<>();
+        for (Transaction transaction : pending) {
+            Card sourceCard = cards.get(transaction.getSourceCard().getId());
+            Card destinationCard = cards.get(transaction.getDestinationCard().getId());
+            try {
+                BigDecimal sourceBalance = balances.get(sourceCard.getId());
+                validateTransfer(sourceCard.getOwner(), sourceCard, destinationCard,
+                        transaction.getAmount(), sourceBalance);
+                spendingLimitEngine.reserve(sourceCard, transaction.getAmount());
+
+                transaction.setBalanceBefore(sourceBalance);
+                completeTransfer(transaction, sourceCard, destinationCard, balances);
+                completed.add(transaction);
+            } catch (RuntimeException e) {
+                if (retryExecutor.isTransient(e)) {
+                    throw e;
+                }
+                transaction.setStatus(Transaction.TransactionStatus.FAILED);
+                transaction.setFailureReason(e.getMessage());
+                transaction.setProcessedDate(LocalDateTime.now());
+            }
+        }
+
+        // Transaction and card updates are flushed at commit through Hibernate's update batching
+        ledgerService.recordTransfers(completed);
+        recordDailySpend(completed);
+        outboxService.recordTransfers(pending);
+
+        log.info("Processed {} pending transfers: {} completed, {} failed",
+                pending.size(), completed.size(), pending.size() - completed.size());
+        return pending.size();
+    }
+
+    /**
+     * Marks a pending transfer as FAILED, used when its batch cannot be processed at all.
+     */
+    @Transactional
+    public void failPendingTransfer(Long transactionId, String reason) {
+        transactionRepository.findById(transactionId)
+                .filter(transaction -> transaction.getStatus() == Transaction.TransactionStatus.PENDING)
+                .ifPresent(transaction -> {
+                    transaction.setStatus(Transaction.TransactionStatus.FAILED);
+                    transaction.setFailureReason(reason);
+                    transaction.setProcessedDate(LocalDateTime.now());
+                    outboxService.recordTransfers(List.of(transaction));
+                });
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findStalePendingTransfers(LocalDateTime createdBefore, int limit) {
+        return transactionRepository.findIdsByStatusCreatedBefore(
+                Transaction.TransactionStatus.PENDING, createdBefore, PageRequest.of(0, limit));
     }
 
     @Transactional(readOnly = true)
-    public TransactionDetailsDto getTransactionDetails(Long transactionId, String username) {
+    public TransactionDto getTransaction(Long transactionId) {
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Transaction not found"));
+        return mapToTransactionDto(transaction);
+    }
 
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    @Transactional(readOnly = true)
+    public TransactionDetailsDto getTransactionDetails(Long transactionId, CurrentUser currentUser) {
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Transaction not found"));
 
         // Check if user is involved in the transaction or is admin
         boolean isOwner = false;
         if (transaction.getSourceCard() != null &&
-                transaction.getSourceCard().getOwner().equals(user)) {
+                currentUser.owns(transaction.getSourceCard().getOwner().getId())) {
             isOwner = true;
         }
         if (transaction.getDestinationCard() != null &&
-                transaction.getDestinationCard().getOwner().equals(user)) {
+                currentUser.owns(transaction.getDestinationCard().getOwner().getId())) {
             isOwner = true;
         }
 
-        if (!isOwner && !isAdmin(username)) {
+        if (!isOwner && !currentUser.isAdmin()) {
             throw new ForbiddenException("You don't have permission to view this transaction");
         }
 
@@ -153,36 +405,59 @@ public class TransactionService {
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<TransactionDto> getUserTransactions(String username, Pageable pageable) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        Page<Transaction> transactionPage = transactionRepository.findByUserId(user.getId(), pageable);
+    public PageResponse<TransactionDto> getUserTransactions(CurrentUser currentUser, Pageable pageable) {
+        // The native query orders by date itself, so only the page position is passed on and
+        // any other requested order is refused rather than silently ignored
+        if (!pageable.getSort().equals(USER_TRANSACTIONS_SORT)) {
+            throw new BadRequestException("User transactions can only be sorted by transactionDate,desc");
+        }
+        Page<Transaction> transactionPage = transactionRepository.findByUserId(currentUser.getId(),
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
         return mapToPageResponse(transactionPage);
     }
 
     @Transactional(readOnly = true)
-    public PageResponse<TransactionDto> getCardTransactions(Long cardId, String username, Pageable pageable) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
-
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-
-        if (!card.getOwner().equals(user) && !isAdmin(username)) {
-            throw new ForbiddenException("You don't have permission to view transactions for this card");
-        }
+    public CursorPageResponse<TransactionDto> getUserTransactions(CurrentUser currentUser, String after, int size) {
+        PageCursor cursor = parseCursor(after);
+        int pageSize = cursorPageSize(size);
+        List<Transaction> transactions = transactionRepository.findByUserIdBefore(
+                currentUser.getId(), cursor.date(), cursor.id(), pageSize + 1);
+        return mapToCursorPageResponse(transactions, pageSize);
+    }
 
+    @Transactional(readOnly = true)
+    public PageResponse<TransactionDto> getCardTransactions(Long cardId, CurrentUser currentUser, Pageable pageable) {
+        Card card = loadCardForHistory(cardId, currentUser);
         Page<Transaction> transactionPage = transactionRepository.findByCard(card, pageable);
         return mapToPageResponse(transactionPage);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageResponse<TransactionDto> getCardTransactions(Long cardId, CurrentUser currentUser,
+                                                                  String after, int size) {
+        PageCursor cursor = parseCursor(after);
+        int pageSize = cursorPageSize(size);
+        Card card = loadCardForHistory(cardId, currentUser);
+        List<Transaction> transactions = transactionRepository.findByCardBefore(
+                card.getId(), cursor.date(), cursor.id(), pageSize + 1);
+        return mapToCursorPageResponse(transactions, pageSize);
+    }
+
     @Transactional(readOnly = true)
     public PageResponse<TransactionDto> getAllTransactions(Pageable pageable) {
         Page<Transaction> transactionPage = transactionRepository.findAll(pageable);
         return mapToPageResponse(transactionPage);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageResponse<TransactionDto> getAllTransactions(String after, int size) {
+        PageCursor cursor = parseCursor(after);
+        int pageSize = cursorPageSize(size);
+        List<Transaction> transactions = transactionRepository.findAllBefore(
+                cursor.date(), cursor.id(), pageSize + 1);
+        return mapToCursorPageResponse(transactions, pageSize);
+    }
+
     @Transactional(readOnly = true)
     public List<TransactionDto> getTransactionsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         List<Transaction> transactions = transactionRepository.findTransactionsBetweenDates(startDate, endDate);
@@ -191,6 +466,110 @@ public class TransactionService {
                 .collect(Collectors.toList());
     }
 
+    private void validateTransfer(User user, Card sourceCard, Card destinationCard,
+                                  BigDecimal amount, BigDecimal sourceBalance) {
+        // Validate ownership
+        if (!sourceCard.getOwner().getId().equals(user.getId())) {
+            throw new ForbiddenException("You can only transfer from your own cards");
+        }
+
+        if (!destinationCard.getOwner().getId().equals(user.getId())) {
+            throw new ForbiddenException("You can only transfer to your own cards");
+        }
+
+        // Validate cards are not the same
+        if (sourceCard.getId().equals(destinationCard.getId())) {
+            throw new BadRequestException("Cannot transfer to the same card");
+        }
+
+        // Validate card status
+        validateCardForTransaction(sourceCard, "Source");
+        validateCardForTransaction(destinationCard, "Destination");
+
+        // Validate amount
+        validateTransferAmount(amount);
+
+        // Check balance
+        if (sourceBalance.compareTo(amount) < 0) {
+            throw new InsufficientFundsException("Insufficient funds on source card");
+        }
+
+        // Check minimum balance
+        BigDecimal balanceAfter = sourceBalance.subtract(amount);
+        if (balanceAfter.compareTo(minBalance) < 0) {
+            throw new InsufficientFundsException(
+                    "Transfer would result in balance below minimum required: " + minBalance);
+        }
+    }
+
+    private Transaction newTransferTransaction(Card sourceCard, Card destinationCard,
+                                               BigDecimal amount, String description,
+                                               BigDecimal sourceBalance) {
+        return Transaction.builder()
+                .transactionId(transactionIdGenerator.generateTransactionId())
+                .sourceCard(sourceCard)
+                .destinationCard(destinationCard)
+                .sourceOwnerId(sourceCard.getOwner().getId())
+                .destinationOwnerId(destinationCard.getOwner().getId())
+                .amount(amount)
+                .type(Transaction.TransactionType.TRANSFER)
+                .status(Transaction.TransactionStatus.PENDING)
+                .description(description != null ? description : "Transfer between own cards")
+                .transactionDate(LocalDateTime.now())
+                .referenceNumber(transactionIdGenerator.generateReferenceNumber())
+                .balanceBefore(sourceBalance)
+                .build();
+    }
+
+    /**
+     * Moves the amount between the running balances of two locked cards and marks the
+     * transfer COMPLETED. In DUAL ledger mode the card rows are updated as well.
+     */
+    private void completeTransfer(Transaction transaction, Card sourceCard, Card destinationCard,
+                                  Map<Long, BigDecimal> balances) {
+        BigDecimal amount = transaction.getAmount();
+        BigDecimal balanceAfter = balances.get(sourceCard.getId()).subtract(amount);
+        balances.put(sourceCard.getId(), balanceAfter);
+        balances.merge(destinationCard.getId(), amount, BigDecimal::add);
+        if (!ledgerService.isLedgerOnly()) {
+            sourceCard.setBalance(sourceCard.getBalance().subtract(amount));
+            destinationCard.setBalance(destinationCard.getBalance().add(amount));
+        }
+
+        transaction.setBalanceAfter(balanceAfter);
+        transaction.setStatus(Transaction.TransactionStatus.COMPLETED);
+        transaction.setProcessedDate(LocalDateTime.now());
+    }
+
+    // Counted on each transaction's own day, as the single transfer path and the checker do
+    private void recordDailySpend(List<Transaction> completed) {
+        completed.stream()
+                .collect(Collectors.groupingBy(transaction -> transaction.getSourceCard().getId(),
+                        Collectors.groupingBy(transaction -> transaction.getTransactionDate().toLocalDate(),
+                                Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add))))
+                .forEach((cardId, amountByDay) -> amountByDay.forEach((day, amount) ->
+                        cardDailySpendRepository.addSpend(cardId, day, amount)));
+    }
+
+    private void validateBatchItem(TransferRequest item) {
+        if (item == null) {
+            throw new BadRequestException("Transfer must not be empty");
+        }
+        Set<ConstraintViolation<TransferRequest>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            throw new BadRequestException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private Card loadCardForTransfer(Long cardId, String cardType) {
+        return (lockingMode == LockingMode.PESSIMISTIC ?
+                cardRepository.findByIdForUpdate(cardId) : cardRepository.findById(cardId))
+                .orElseThrow(() -> new ResourceNotFoundException(cardType + " card not found"));
+    }
+
     private void validateCardForTransaction(Card card, String cardType) {
         if (card.getStatus() == Card.CardStatus.BLOCKED) {
             throw new CardBlockedException(cardType + " card is blocked");
@@ -212,33 +591,6 @@ public class TransactionService {
         }
     }
 
-    private void checkDailyLimit(Card card, BigDecimal amount) {
-        LocalDateTime startOfDay = LocalDateTime.now().toLocalDate().atStartOfDay();
-        LocalDateTime startOfNextDay = startOfDay.plusDays(1);
-
-        BigDecimal todaySpent = transactionRepository.getTodaySpentAmount(
-                card, Transaction.TransactionStatus.COMPLETED, startOfDay, startOfNextDay);
-
-        if (todaySpent == null) {
-            todaySpent = BigDecimal.ZERO;
-        }
-
-        BigDecimal totalAfterTransfer = todaySpent.add(amount);
-
-        if (card.getDailyLimit() != null && totalAfterTransfer.compareTo(card.getDailyLimit()) > 0) {
-            throw new DailyLimitExceededException(
-                    "Transfer would exceed daily limit. Today spent: " + todaySpent +
-                            ", Daily limit: " + card.getDailyLimit());
-        }
-    }
-
-    private boolean isAdmin(String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        return user.getRoles().stream()
-                .anyMatch(role -> role.getName() == Role.RoleName.ROLE_ADMIN);
-    }
-
     private TransactionDto mapToTransactionDto(Transaction transaction) {
         return TransactionDto.builder()
                 .id(transaction.getId())
@@ -281,6 +633,47 @@ public class TransactionService {
                 .build();
     }
 
+    private Card loadCardForHistory(Long cardId, CurrentUser currentUser) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new ResourceNotFoundException("Card not found"));
+
+        if (!currentUser.owns(card.getOwner().getId()) && !currentUser.isAdmin()) {
+            throw new ForbiddenException("You don't have permission to view transactions for this card");
+        }
+        return card;
+    }
+
+    private PageCursor parseCursor(String after) {
+        try {
+            return PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid page cursor");
+        }
+    }
+
+    private int cursorPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
+    // The repository returns one row more than the page to tell whether another page follows
+    private CursorPageResponse<TransactionDto> mapToCursorPageResponse(List<Transaction> transactions, int pageSize) {
+        boolean last = transactions.size() <= pageSize;
+        List<Transaction> page = last ? transactions : transactions.subList(0, pageSize);
+        String nextCursor = null;
+        if (!last) {
+            Transaction lastOnPage = page.get(page.size() - 1);
+            nextCursor = new PageCursor(lastOnPage.getTransactionDate(), lastOnPage.getId()).encode();
+        }
+        return CursorPageResponse.<TransactionDto>builder()
+                .content(page.stream()
+                        .map(this::mapToTransactionDto)
+                        .collect(Collectors.toList()))
+                .pageSize(pageSize)
+                .nextCursor(nextCursor)
+                .last(last)
+                .build();
+    }
+
     private PageResponse<TransactionDto> mapToPageResponse(Page<Transaction> transactionPage) {
         return PageResponse.<TransactionDto>builder()
                 .content(transactionPage.getContent().stream()
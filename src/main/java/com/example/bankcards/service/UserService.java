@@ -9,6 +9,8 @@ import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.CurrentUser;
+import com.example.bankcards.security.UserPrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -28,6 +30,7 @@ public class UserService {
     private final CardRepository cardRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Transactional(readOnly = true)
     public UserDto getUserById(Long id) {
@@ -44,8 +47,8 @@ public class UserService {
     }
 
     @Transactional(readOnly = true)
-    public UserProfileDto getUserProfile(String username) {
-        User user = userRepository.findByUsername(username)
+    public UserProfileDto getUserProfile(CurrentUser currentUser) {
+        User user = userRepository.findById(currentUser.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         long totalCards = cardRepository.countByOwnerAndStatus(user, null);
@@ -64,8 +67,8 @@ public class UserService {
     }
 
     @Transactional
-    public UserDto updateUser(String username, UserUpdateRequest request) {
-        User user = userRepository.findByUsername(username)
+    public UserDto updateUser(CurrentUser currentUser, UserUpdateRequest request) {
+        User user = userRepository.findById(currentUser.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         if (request.getFirstName() != null) {
@@ -85,7 +88,8 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
-        log.info("User updated: {}", username);
+        userPrincipalCache.evictAfterCommit(user);
+        log.info("User updated: {}", user.getUsername());
 
         return mapToUserDto(updatedUser);
     }
@@ -108,7 +112,9 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         user.setActive(active);
+        user.rotateSecurityStamp();
         userRepository.save(user);
+        userPrincipalCache.evictAfterCommit(user);
 
         log.info("User {} status changed to: {}", user.getUsername(), active ? "active" : "inactive");
     }
@@ -119,7 +125,9 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
         user.setLocked(locked);
+        user.rotateSecurityStamp();
         userRepository.save(user);
+        userPrincipalCache.evictAfterCommit(user);
 
         log.info("User {} lock status changed to: {}", user.getUsername(), locked ? "locked" : "unlocked");
     }
@@ -134,7 +142,9 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("Role not found"));
 
         user.getRoles().add(role);
+        user.rotateSecurityStamp();
         User updatedUser = userRepository.save(user);
+        userPrincipalCache.evictAfterCommit(user);
 
         log.info("Role {} added to user {}", roleName, user.getUsername());
         return mapToUserDto(updatedUser);
@@ -150,7 +160,9 @@ public class UserService {
                 .orElseThrow(() -> new ResourceNotFoundException("Role not found"));
 
         user.getRoles().remove(role);
+        user.rotateSecurityStamp();
         User updatedUser = userRepository.save(user);
+        userPrincipalCache.evictAfterCommit(user);
 
         log.info("Role {} removed from user {}", roleName, user.getUsername());
         return mapToUserDto(updatedUser);
@@ -158,11 +170,11 @@ public class UserService {
 
     @Transactional
     public void deleteUser(Long userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new ResourceNotFoundException("User not found");
-        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        userRepository.deleteById(userId);
+        userRepository.delete(user);
+        userPrincipalCache.evictAfterCommit(user);
         log.info("User deleted with id: {}", userId);
     }
 
@@ -0,0 +1,76 @@
+package com.example.bankcards.service.outbox;
+
+import com.example.bankcards.entity.OutboxEvent;
+import com.example.bankcards.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Drains outbox_events to the configured sink in id order. Each batch is claimed with
+ * FOR UPDATE SKIP LOCKED, published and marked in one transaction, so several nodes can
+ * relay concurrently and every event is delivered at least once.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink sink;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.relay.batch-size}")
+    private int batchSize;
+
+    @Value("${app.outbox.retention}")
+    private Duration retention;
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.poll-interval}")
+    public void relay() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        try {
+            Integer published;
+            do {
+                published = template.execute(status -> publishBatch());
+            } while (published != null && published == batchSize);
+        } catch (RuntimeException e) {
+            meterRegistry.counter("bankcards.outbox.publish.failures").increment();
+            log.warn("Outbox relay failed, the batch will be retried: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${app.outbox.cleanup-cron}")
+    public void purgePublished() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        Integer deleted = template.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findUnpublishedForUpdate(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        sink.publish(events);
+        outboxEventRepository.markPublished(events.stream().map(OutboxEvent::getId).toList(), LocalDateTime.now());
+        meterRegistry.counter("bankcards.outbox.published").increment(events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.service.outbox;
+
+import com.example.bankcards.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the outbox relay. A batch counts as published only if this method
+ * returns normally; on an exception the whole batch is offered again later, so sinks
+ * must tolerate duplicates.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,150 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Serializes work on the same cards inside the JVM before it reaches the database.
+ * Every card id hashes onto one of a fixed number of single-threaded lanes; a task that
+ * touches two cards runs on the lower lane and holds the higher one for its duration.
+ * Lanes are always claimed in ascending order, so two tasks can never wait on each other.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CardLaneDispatcher {
+
+    private static final ThreadLocal<Boolean> ON_LANE = ThreadLocal.withInitial(() -> false);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.transfer.lanes.enabled}")
+    private boolean enabled;
+
+    @Value("${app.transfer.lanes.count}")
+    private int laneCount;
+
+    @Value("${app.transfer.lanes.queue-capacity}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor[] lanes;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String threadName = "card-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(() -> {
+                            ON_LANE.set(true);
+                            runnable.run();
+                        }, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        Gauge.builder("bankcards.transfer.lanes.queued", this,
+                        dispatcher -> Arrays.stream(dispatcher.lanes).mapToInt(lane -> lane.getQueue().size()).sum())
+                .description("Tasks waiting for a card lane")
+                .register(meterRegistry);
+        log.info("Started {} card lanes", laneCount);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (lanes != null) {
+            Arrays.stream(lanes).forEach(ThreadPoolExecutor::shutdown);
+        }
+    }
+
+    /**
+     * Runs the task on the lanes owning both cards and blocks until it completes.
+     * Exceptions thrown by the task are rethrown to the caller unchanged.
+     */
+    public <T> T execute(Long firstCardId, Long secondCardId, Supplier<T> task) {
+        if (!enabled || ON_LANE.get()) {
+            return task.get();
+        }
+
+        int firstLane = laneOf(firstCardId);
+        int secondLane = laneOf(secondCardId);
+        int homeLane = Math.min(firstLane, secondLane);
+        int heldLane = Math.max(firstLane, secondLane);
+
+        Future<T> future = submit(homeLane,
+                () -> homeLane == heldLane ? task.get() : runHoldingLane(heldLane, task));
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Card lane task failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for card lane");
+        }
+    }
+
+    private <T> T runHoldingLane(int lane, Supplier<T> task) throws InterruptedException {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        submit(lane, () -> {
+            held.countDown();
+            release.await();
+            return null;
+        });
+
+        try {
+            held.await();
+            return task.get();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private <T> Future<T> submit(int lane, Callable<T> task) {
+        try {
+            return lanes[lane].submit(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Card lane {} is saturated", lane);
+            throw new ServiceUnavailableException("Too many concurrent transfers, please retry later");
+        }
+    }
+
+    private int laneOf(Long cardId) {
+        long mixed = cardId * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (mixed ^ (mixed >>> 32)), laneCount);
+    }
+}
@@ -30,20 +30,55 @@ public class CardNumberUtils {
     }
 
     /**
-     * Generates a random 16-digit card number (for demonstration)
-     * In production, this would follow proper card number generation rules
+     * Generates a random 16-digit card number with a valid Luhn check digit (for demonstration)
+     * In production, this would use the issuer's BINs, see CardNumberAllocator
      */
     public String generateCardNumber() {
-        StringBuilder cardNumber = new StringBuilder();
         // Start with 4 for Visa or 5 for Mastercard
-        cardNumber.append(RANDOM.nextInt(2) == 0 ? "4" : "5");
+        return generateCardNumber(RANDOM.nextInt(2) == 0 ? "4" : "5", 16);
+    }
+
+    /**
+     * Generates a random card number of the given length that starts with the given BIN
+     * and ends with a valid Luhn check digit
+     */
+    public String generateCardNumber(String bin, int length) {
+        int accountDigits = length - 1 - bin.length();
+        if (accountDigits < 1 || accountDigits > 18) {
+            throw new IllegalArgumentException("BIN " + bin + " does not fit a card number of length " + length);
+        }
+
+        // One draw for the whole account number rather than one per digit
+        long bound = (long) Math.pow(10, accountDigits);
+        StringBuilder cardNumber = new StringBuilder(length)
+                .append(bin)
+                .append(String.format("%0" + accountDigits + "d", RANDOM.nextLong(bound)));
+        return cardNumber.append(luhnCheckDigit(cardNumber)).toString();
+    }
+
+    /**
+     * Computes the digit that makes the given digits followed by it pass the Luhn check
+     */
+    public int luhnCheckDigit(CharSequence digits) {
+        int sum = 0;
+        // The check digit will take the rightmost position, so doubling starts with the last digit here
+        boolean alternate = true;
+
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+
+            if (alternate) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
 
-        // Generate remaining 15 digits
-        for (int i = 0; i < 15; i++) {
-            cardNumber.append(RANDOM.nextInt(10));
+            sum += digit;
+            alternate = !alternate;
         }
 
-        return cardNumber.toString();
+        return (10 - sum % 10) % 10;
     }
 
     /**
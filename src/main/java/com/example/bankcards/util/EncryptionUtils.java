@@ -1,38 +1,93 @@
 package com.example.bankcards.util;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
 
+/**
+ * Encrypts card data at rest. Two formats are understood:
+ * <ul>
+ *     <li>legacy: Base64 of AES/ECB ciphertext, as written by earlier versions;</li>
+ *     <li>{@code $g1$<keyId>$<Base64(nonce || ciphertext || tag)>}: AES-GCM with a random
+ *     96-bit nonce, tagged with the id of the key that wrote it.</li>
+ * </ul>
+ * Both are always readable; {@code app.security.encryption.write-format} picks the one
+ * that is written. The key is derived once at startup and ciphers are reused per thread.
+ * <p>
+ * Because GCM values differ on every write, equality lookups go through
+ * {@link #blindIndex(String)}, an HMAC under a separate key.
+ */
 @Component
 @Slf4j
 public class EncryptionUtils {
 
     private static final String ALGORITHM = "AES";
+    private static final String LEGACY_TRANSFORMATION = "AES";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String GCM_PREFIX = "$g1$";
+    private static final int GCM_NONCE_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final String BLIND_INDEX_ALGORITHM = "HmacSHA256";
+
+    public enum WriteFormat {
+        LEGACY, GCM
+    }
 
     @Value("${app.security.encryption.key}")
     private String encryptionKey;
 
-    private SecretKey getSecretKey() {
+    @Value("${app.security.encryption.key-id}")
+    private String keyId;
+
+    @Value("${app.security.encryption.write-format}")
+    private WriteFormat writeFormat;
+
+    @Value("${app.security.encryption.blind-index-key}")
+    private String blindIndexKey;
+
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> legacyCiphers = ThreadLocal.withInitial(() -> newCipher(LEGACY_TRANSFORMATION));
+    private final ThreadLocal<Cipher> gcmCiphers = ThreadLocal.withInitial(() -> newCipher(GCM_TRANSFORMATION));
+    private final ThreadLocal<Mac> blindIndexMacs = ThreadLocal.withInitial(this::newBlindIndexMac);
+
+    private SecretKey secretKey;
+    private SecretKey blindIndexSecretKey;
+
+    @PostConstruct
+    public void init() {
+        if (keyId.isEmpty() || keyId.contains("$")) {
+            throw new IllegalStateException("Encryption key id must be non-empty and must not contain '$'");
+        }
         byte[] keyBytes = encryptionKey.getBytes(StandardCharsets.UTF_8);
         // Ensure the key is exactly 32 bytes for AES-256
         byte[] key = new byte[32];
         System.arraycopy(keyBytes, 0, key, 0, Math.min(keyBytes.length, 32));
-        return new SecretKeySpec(key, ALGORITHM);
+        secretKey = new SecretKeySpec(key, ALGORITHM);
+        blindIndexSecretKey = new SecretKeySpec(blindIndexKey.getBytes(StandardCharsets.UTF_8), BLIND_INDEX_ALGORITHM);
+        log.info("Card data encryption writes the {} format with key {}", writeFormat, keyId);
     }
 
     public String encrypt(String data) {
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, getSecretKey());
-            byte[] encryptedData = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(encryptedData);
+            return writeFormat == WriteFormat.GCM ? encryptGcm(data) : encryptLegacy(data);
         } catch (Exception e) {
             log.error("Error encrypting data: {}", e.getMessage());
             throw new RuntimeException("Encryption failed", e);
@@ -41,16 +96,44 @@ public class EncryptionUtils {
 
     public String decrypt(String encryptedData) {
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, getSecretKey());
-            byte[] decryptedData = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
-            return new String(decryptedData, StandardCharsets.UTF_8);
+            return encryptedData.startsWith(GCM_PREFIX) ? decryptGcm(encryptedData) : decryptLegacy(encryptedData);
         } catch (Exception e) {
             log.error("Error decrypting data: {}", e.getMessage());
             throw new RuntimeException("Decryption failed", e);
         }
     }
 
+    /**
+     * Encrypts every value in order; the result has the same size and order as the input.
+     */
+    public List<String> encryptAll(Collection<String> data) {
+        List<String> encrypted = new ArrayList<>(data.size());
+        for (String value : data) {
+            encrypted.add(encrypt(value));
+        }
+        return encrypted;
+    }
+
+    /**
+     * Decrypts every value in order, whatever format each one was written in.
+     */
+    public List<String> decryptAll(Collection<String> encryptedData) {
+        List<String> decrypted = new ArrayList<>(encryptedData.size());
+        for (String value : encryptedData) {
+            decrypted.add(decrypt(value));
+        }
+        return decrypted;
+    }
+
+    /**
+     * Deterministic, keyed digest of the value as 64 hex characters. Equal inputs give equal
+     * outputs, so it can be indexed and compared, but it cannot be reversed without the key.
+     */
+    public String blindIndex(String data) {
+        Mac mac = blindIndexMacs.get();
+        return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
     public String hashData(String data) {
         // Simple hash for demonstration - in production use proper hashing
         try {
@@ -62,4 +145,66 @@ public class EncryptionUtils {
             throw new RuntimeException("Hashing failed", e);
         }
     }
-}
\ No newline at end of file
+
+    private String encryptLegacy(String data) throws Exception {
+        Cipher cipher = legacyCiphers.get();
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+        byte[] encryptedData = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(encryptedData);
+    }
+
+    private String decryptLegacy(String encryptedData) throws Exception {
+        Cipher cipher = legacyCiphers.get();
+        cipher.init(Cipher.DECRYPT_MODE, secretKey);
+        byte[] decryptedData = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
+        return new String(decryptedData, StandardCharsets.UTF_8);
+    }
+
+    private String encryptGcm(String data) throws Exception {
+        byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        random.nextBytes(nonce);
+
+        Cipher cipher = gcmCiphers.get();
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_BITS, nonce));
+        byte[] plain = data.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(GCM_NONCE_LENGTH + cipher.getOutputSize(plain.length));
+        payload.put(nonce);
+        cipher.doFinal(ByteBuffer.wrap(plain), payload);
+        return GCM_PREFIX + keyId + "$" + Base64.getEncoder().encodeToString(payload.array());
+    }
+
+    private String decryptGcm(String encryptedData) throws Exception {
+        int keyEnd = encryptedData.indexOf('$', GCM_PREFIX.length());
+        if (keyEnd < 0) {
+            throw new IllegalArgumentException("Malformed AES-GCM value");
+        }
+        String valueKeyId = encryptedData.substring(GCM_PREFIX.length(), keyEnd);
+        if (!valueKeyId.equals(keyId)) {
+            throw new IllegalArgumentException("Value was encrypted with unknown key " + valueKeyId);
+        }
+
+        byte[] payload = Base64.getDecoder().decode(encryptedData.substring(keyEnd + 1));
+        Cipher cipher = gcmCiphers.get();
+        cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(GCM_TAG_BITS, payload, 0, GCM_NONCE_LENGTH));
+        byte[] decryptedData = cipher.doFinal(payload, GCM_NONCE_LENGTH, payload.length - GCM_NONCE_LENGTH);
+        return new String(decryptedData, StandardCharsets.UTF_8);
+    }
+
+    private Mac newBlindIndexMac() {
+        try {
+            Mac mac = Mac.getInstance(BLIND_INDEX_ALGORITHM);
+            mac.init(blindIndexSecretKey);
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException("Cannot initialise the blind index HMAC", e);
+        }
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException(transformation + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bankcards.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a list sorted by (date, id) descending, handed to clients as an opaque
+ * string. The next page is everything strictly after the position, so it is read with an
+ * index seek instead of skipping the rows of all previous pages.
+ */
+public record PageCursor(LocalDateTime date, long id) {
+
+    /**
+     * Position before the newest row, for the first page.
+     */
+    public static final PageCursor START = new PageCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public String encode() {
+        String plain = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a cursor produced by {@link #encode()}; an empty string stands for {@link #START}.
+     *
+     * @throws IllegalArgumentException if the value is not a cursor
+     */
+    public static PageCursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return START;
+        }
+        try {
+            String plain = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = plain.indexOf('|');
+            return new PageCursor(LocalDateTime.parse(plain.substring(0, separator)),
+                    Long.parseLong(plain.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.bankcards.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Hashed timing wheel for deadlines at coarse granularity. An item goes into the slot of
+ * its deadline's tick; advancing the wheel only visits the slots of the ticks that have
+ * passed, so expiring items costs time proportional to the elapsed ticks and to the items
+ * in them rather than to everything scheduled. Items further away than one rotation stay
+ * in their slot until a later lap reaches their deadline.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final List<List<Entry<T>>> slots;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(Duration tick, int slotCount, long nowMillis) {
+        this.tickMillis = tick.toMillis();
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        // Overdue items go into the current slot and leave with the next advance
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick);
+        slots.get(slotOf(tick)).add(new Entry<>(item, deadlineMillis));
+        size++;
+    }
+
+    /**
+     * Moves the wheel to the given time and returns the items whose deadline has passed.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        long ticks = Math.min(targetTick - currentTick + 1, slots.size());
+        for (long i = 0; i < ticks; i++) {
+            Iterator<Entry<T>> entries = slots.get(slotOf(currentTick + i)).iterator();
+            while (entries.hasNext()) {
+                Entry<T> entry = entries.next();
+                if (entry.deadlineMillis() <= nowMillis) {
+                    expired.add(entry.item());
+                    entries.remove();
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        size -= expired.size();
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.size());
+    }
+
+    private record Entry<T>(T item, long deadlineMillis) {
+    }
+}
@@ -1,41 +1,99 @@
 package com.example.bankcards.util;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Generates transaction, reference and block request IDs from 64-bit Snowflake-style
+ * values: 41 bits of milliseconds since 2024-01-01 UTC, a 10-bit node id and a 12-bit
+ * sequence. IDs are unique across the cluster as long as every running instance has its
+ * own node id, so they never need checking against the database.
+ * <p>
+ * Lock-free: the timestamp and sequence live together in one long that is advanced by a
+ * compare-and-set. When the sequence of a millisecond runs out, or the clock steps back,
+ * the generator borrows the next millisecond instead of waiting, so IDs keep increasing.
+ */
 @Component
 public class TransactionIdGenerator {
 
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Crockford base 32: no I, L, O or U, so IDs read back unambiguously
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    // 13 characters cover 64 bits; fixed width keeps IDs sorted by time
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long nodeId;
+    // (timestamp << SEQUENCE_BITS) | sequence of the last issued ID
+    private final AtomicLong state = new AtomicLong();
+
+    public TransactionIdGenerator(@Value("${app.transfer.id-generator.node-id}") long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
 
     /**
      * Generates a unique transaction ID
-     * Format: TXN-YYYYMMDDHHMMSS-XXXX
+     * Format: TXN-XXXXXXXXXXXXX
      */
     public String generateTransactionId() {
-        String timestamp = LocalDateTime.now().format(FORMATTER);
-        String uniquePart = UUID.randomUUID().toString().substring(0, 4).toUpperCase();
-        return String.format("TXN-%s-%s", timestamp, uniquePart);
+        return encode("TXN-", nextId());
     }
 
     /**
      * Generates a unique reference number for transactions
-     * Format: REF-XXXXXXXXXX
+     * Format: REF-XXXXXXXXXXXXX
      */
     public String generateReferenceNumber() {
-        return "REF-" + UUID.randomUUID().toString().replace("-", "").substring(0, 10).toUpperCase();
+        return encode("REF-", nextId());
     }
 
     /**
      * Generates a unique block request ID
-     * Format: BLK-YYYYMMDD-XXXX
+     * Format: BLK-XXXXXXXXXXXXX
      */
     public String generateBlockRequestId() {
-        String date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String uniquePart = UUID.randomUUID().toString().substring(0, 4).toUpperCase();
-        return String.format("BLK-%s-%s", date, uniquePart);
+        return encode("BLK-", nextId());
+    }
+
+    /**
+     * Returns the next 64-bit ID, greater than every ID this instance issued before
+     */
+    public long nextId() {
+        long now = (currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long current;
+        long next;
+        do {
+            current = state.get();
+            // Incrementing carries a full sequence over into the next millisecond
+            next = Math.max(current + 1, now);
+        } while (!state.compareAndSet(current, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    // Overridden in tests to drive the clock
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private static String encode(String prefix, long id) {
+        int length = prefix.length() + ENCODED_LENGTH;
+        char[] chars = new char[length];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = length - 1; i >= prefix.length(); i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.ConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionRetryExecutor {
+
+    // serialization_failure and deadlock_detected
+    private static final Set<String> TRANSIENT_SQL_STATES = Set.of("40001", "40P01");
+
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.transaction.retry.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${app.transaction.retry.initial-backoff-ms}")
+    private long initialBackoffMs;
+
+    @Value("${app.transaction.retry.max-backoff-ms}")
+    private long maxBackoffMs;
+
+    /**
+     * Runs the action in a new transaction with the given isolation level and replays it
+     * on transient failures (serialization failures, deadlocks, lock timeouts, stale
+     * versions) using exponential backoff with full jitter. Every replay runs the action
+     * from scratch, so entities are re-read in their current state.
+     * When a transaction is already active the action simply joins it and is not retried,
+     * since the outer transaction is doomed by the failure anyway.
+     */
+    public <T> T execute(String operation, Isolation isolation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setIsolationLevel(isolation.value());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = template.execute(status -> action.get());
+                if (attempt > 1) {
+                    meterRegistry.counter("bankcards.transaction.retry.recovered",
+                            "operation", operation).increment();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                String reason = transientReason(e);
+                if (reason == null) {
+                    throw e;
+                }
+
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("bankcards.transaction.retry.exhausted",
+                            "operation", operation, "reason", reason).increment();
+                    log.warn("Operation {} gave up after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw new ConflictException(
+                            "The operation could not be completed due to concurrent updates, please retry");
+                }
+
+                meterRegistry.counter("bankcards.transaction.retries",
+                        "operation", operation, "reason", reason).increment();
+                log.debug("Retrying {} after transient failure (attempt {}): {}", operation, attempt, reason);
+
+                if (!backoff(attempt)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public boolean isTransient(Throwable error) {
+        return transientReason(error) != null;
+    }
+
+    private String transientReason(Throwable error) {
+        boolean lockingFailure = false;
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && TRANSIENT_SQL_STATES.contains(sqlException.getSQLState())) {
+                return sqlException.getSQLState();
+            }
+            if (cause instanceof OptimisticLockingFailureException
+                    || cause instanceof OptimisticLockException) {
+                return "optimistic";
+            }
+            if (cause instanceof PessimisticLockingFailureException) {
+                lockingFailure = true;
+            }
+        }
+        return lockingFailure ? "lock" : null;
+    }
+
+    private boolean backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the claims of a token through the paths of {@link JwtUtils}:
+ * <ul>
+ *     <li>parsePerCall: decoding the key and building a parser on every call, as JwtUtils
+ *     did before the key and parser were cached;</li>
+ *     <li>cachedParser: the cached parser, which is what a token not seen before costs;</li>
+ *     <li>cachedClaims: {@link JwtUtils#extractAllClaims(String)} for a token already
+ *     verified, answered from the claims cache.</li>
+ * </ul>
+ * Not a test; run it with
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtUtilsBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET_KEY = Base64.getEncoder()
+            .encodeToString("benchmark-jwt-signing-key-of-at-least-32-bytes".getBytes());
+
+    private JwtUtils jwtUtils;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtils, "refreshExpiration", TimeUnit.DAYS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtils, "claimsCacheSize", 1000);
+        jwtUtils.init();
+
+        parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)))
+                .build();
+        token = jwtUtils.generateTokenFromUsername("benchmark");
+        jwtUtils.extractAllClaims(token);
+    }
+
+    @Benchmark
+    public Claims parsePerCall() {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims cachedParser() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public Claims cachedClaims() {
+        return jwtUtils.extractAllClaims(token);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.CardNumberUtils;
+import com.example.bankcards.util.EncryptionUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CardNumberAllocatorTest {
+
+    private static final String BIN = "427681";
+
+    @Mock
+    private CardRepository cardRepository;
+    @Mock
+    private CardNumberUtils cardNumberUtils;
+    @Mock
+    private EncryptionUtils encryptionUtils;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CardNumberAllocator allocator;
+
+    @AfterEach
+    void tearDown() {
+        if (allocator != null) {
+            allocator.stop();
+        }
+    }
+
+    @Test
+    void neverHandsOutANumberTwiceFromThePoolOrADryPool() {
+        allocator = startAllocator(300, 8, 0);
+        awaitFullPool(8);
+
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            numbers.add(allocator.allocate().number());
+        }
+        // A low-water mark of 0 never refills, so everything after this is generated on the spot
+        assertThat(pool()).isEmpty();
+        for (int i = 0; i < 200; i++) {
+            numbers.add(allocator.allocate().number());
+        }
+
+        assertThat(numbers).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void neverHandsOutANumberTwiceWhileRefillingConcurrently() throws Exception {
+        allocator = startAllocator(1000, 16, 8);
+
+        Queue<String> numbers = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        numbers.add(allocator.allocate().number());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(numbers).hasSize(400).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void releasedNumbersAreStillCheckedAgainstTheDatabase() {
+        allocator = startAllocator(50, 1, 0);
+        awaitFullPool(1);
+
+        Set<String> saved = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            CardNumberAllocator.CardNumber cardNumber = allocator.allocate();
+            assertThat(saved.add(cardNumber.number())).as(cardNumber.number()).isTrue();
+            // As after the card is saved: the number now lives in the database
+            lenient().when(cardRepository.existsByCardNumberHash(cardNumber.hash())).thenReturn(true);
+            allocator.release(cardNumber);
+        }
+    }
+
+    /**
+     * Starts an allocator whose generator draws from only {@code candidates} numbers, so
+     * repeated candidates are common and have to be skipped.
+     */
+    private CardNumberAllocator startAllocator(int candidates, int poolSize, int lowWater) {
+        when(cardRepository.count()).thenReturn(0L);
+        when(cardRepository.streamCardNumberHashes()).thenReturn(Stream.empty());
+        when(cardNumberUtils.generateCardNumber(anyString(), anyInt())).thenAnswer(invocation ->
+                invocation.getArgument(0) + String.format("%010d", ThreadLocalRandom.current().nextInt(candidates)));
+        when(encryptionUtils.blindIndex(anyString())).thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+
+        CardNumberAllocator cardNumberAllocator = new CardNumberAllocator(cardRepository, cardNumberUtils,
+                encryptionUtils, transactionManager, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cardNumberAllocator, "bins", List.of(BIN));
+        ReflectionTestUtils.setField(cardNumberAllocator, "length", 16);
+        ReflectionTestUtils.setField(cardNumberAllocator, "poolSize", poolSize);
+        ReflectionTestUtils.setField(cardNumberAllocator, "lowWater", lowWater);
+        ReflectionTestUtils.setField(cardNumberAllocator, "expectedCards", 10_000);
+        ReflectionTestUtils.setField(cardNumberAllocator, "falsePositiveRate", 0.01);
+        cardNumberAllocator.start();
+        return cardNumberAllocator;
+    }
+
+    private void awaitFullPool(int poolSize) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool().size() < poolSize) {
+            assertThat(System.currentTimeMillis()).as("pool filled in time").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    private BlockingQueue<?> pool() {
+        return (BlockingQueue<?>) ReflectionTestUtils.getField(allocator, "pool");
+    }
+}
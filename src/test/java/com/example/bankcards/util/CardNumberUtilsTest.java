@@ -0,0 +1,55 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardNumberUtilsTest {
+
+    private static final Properties CONFIG = loadConfig();
+    private static final int LENGTH = Integer.parseInt(CONFIG.getProperty("app.card.number-allocator.length"));
+
+    private final CardNumberUtils cardNumberUtils = new CardNumberUtils();
+
+    static Stream<String> configuredBins() {
+        return Arrays.stream(CONFIG.getProperty("app.card.number-allocator.bins").split(",")).map(String::trim);
+    }
+
+    @ParameterizedTest
+    @MethodSource("configuredBins")
+    void generatedNumbersAreLuhnValidAndKeepTheBin(String bin) {
+        for (int i = 0; i < 10_000; i++) {
+            String cardNumber = cardNumberUtils.generateCardNumber(bin, LENGTH);
+
+            assertThat(cardNumber).hasSize(LENGTH).startsWith(bin).containsOnlyDigits();
+            assertThat(cardNumberUtils.isValidCardNumber(cardNumber)).as(cardNumber).isTrue();
+        }
+    }
+
+    @Test
+    void luhnCheckDigitCompletesAKnownNumber() {
+        assertThat(cardNumberUtils.luhnCheckDigit("7992739871")).isEqualTo(3);
+        assertThat(cardNumberUtils.luhnCheckDigit("453957876362148")).isEqualTo(6);
+    }
+
+    @Test
+    void rejectsABinThatDoesNotFitTheLength() {
+        assertThatThrownBy(() -> cardNumberUtils.generateCardNumber("123456789012345", 16))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Properties loadConfig() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        return yaml.getObject();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bankcards.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypt and decrypt round trip of a card number through the three paths of
+ * {@link EncryptionUtils}:
+ * <ul>
+ *     <li>legacyPerCall: AES/ECB deriving the key and creating a Cipher on every call, as
+ *     EncryptionUtils did before the key and ciphers were cached;</li>
+ *     <li>legacyCached: AES/ECB with the key derived once and a cipher reused per thread;</li>
+ *     <li>gcm: the versioned AES-GCM format with the same caching.</li>
+ * </ul>
+ * Not a test; run it with
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main EncryptionUtilsBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptionUtilsBenchmark {
+
+    private static final String KEY = "benchmark-encryption-key-32-byte";
+    private static final String CARD_NUMBER = "4000001234567899";
+
+    private EncryptionUtils legacy;
+    private EncryptionUtils gcm;
+
+    @Setup
+    public void setUp() {
+        legacy = newEncryptionUtils(EncryptionUtils.WriteFormat.LEGACY);
+        gcm = newEncryptionUtils(EncryptionUtils.WriteFormat.GCM);
+    }
+
+    @Benchmark
+    public String legacyPerCall() throws Exception {
+        Cipher encryptCipher = Cipher.getInstance("AES");
+        encryptCipher.init(Cipher.ENCRYPT_MODE, deriveKey());
+        String encrypted = Base64.getEncoder().encodeToString(
+                encryptCipher.doFinal(CARD_NUMBER.getBytes(StandardCharsets.UTF_8)));
+
+        Cipher decryptCipher = Cipher.getInstance("AES");
+        decryptCipher.init(Cipher.DECRYPT_MODE, deriveKey());
+        return new String(decryptCipher.doFinal(Base64.getDecoder().decode(encrypted)), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String legacyCached() {
+        return legacy.decrypt(legacy.encrypt(CARD_NUMBER));
+    }
+
+    @Benchmark
+    public String gcm() {
+        return gcm.decrypt(gcm.encrypt(CARD_NUMBER));
+    }
+
+    private static SecretKey deriveKey() {
+        byte[] keyBytes = KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[32];
+        System.arraycopy(keyBytes, 0, key, 0, Math.min(keyBytes.length, 32));
+        return new SecretKeySpec(key, "AES");
+    }
+
+    private static EncryptionUtils newEncryptionUtils(EncryptionUtils.WriteFormat writeFormat) {
+        EncryptionUtils encryptionUtils = new EncryptionUtils();
+        ReflectionTestUtils.setField(encryptionUtils, "encryptionKey", KEY);
+        ReflectionTestUtils.setField(encryptionUtils, "keyId", "bench");
+        ReflectionTestUtils.setField(encryptionUtils, "writeFormat", writeFormat);
+        ReflectionTestUtils.setField(encryptionUtils, "blindIndexKey", "benchmark-blind-index-key");
+        encryptionUtils.init();
+        return encryptionUtils;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EncryptionUtilsTest {
+
+    private static final String KEY = "unit-test-encryption-key-32-byte";
+    private static final String CARD_NUMBER = "4276811234567897";
+
+    private final EncryptionUtils gcm = newEncryptionUtils(EncryptionUtils.WriteFormat.GCM, "k1");
+    private final EncryptionUtils legacy = newEncryptionUtils(EncryptionUtils.WriteFormat.LEGACY, "k1");
+
+    @Test
+    void gcmRoundTrip() {
+        String encrypted = gcm.encrypt(CARD_NUMBER);
+
+        assertThat(encrypted).startsWith("$g1$k1$").doesNotContain(CARD_NUMBER);
+        assertThat(gcm.decrypt(encrypted)).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    void gcmUsesAFreshNonceForEveryValue() {
+        assertThat(gcm.encrypt(CARD_NUMBER)).isNotEqualTo(gcm.encrypt(CARD_NUMBER));
+    }
+
+    @Test
+    void readsLegacyValuesWhileWritingGcm() {
+        String legacyValue = legacy.encrypt(CARD_NUMBER);
+
+        assertThat(legacyValue).doesNotStartWith("$g1$");
+        assertThat(gcm.decrypt(legacyValue)).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    void decryptAllKeepsTheOrderAcrossFormats() {
+        List<String> plain = List.of("4276810000000001", "5392140000000002", "4276810000000003", "5392140000000004");
+        List<String> encrypted = List.of(
+                legacy.encrypt(plain.get(0)),
+                gcm.encrypt(plain.get(1)),
+                gcm.encrypt(plain.get(2)),
+                legacy.encrypt(plain.get(3)));
+
+        assertThat(gcm.decryptAll(encrypted)).containsExactlyElementsOf(plain);
+        assertThat(legacy.decryptAll(encrypted)).containsExactlyElementsOf(plain);
+    }
+
+    @Test
+    void rejectsAGcmValueWrittenUnderAnotherKeyId() {
+        EncryptionUtils otherKey = newEncryptionUtils(EncryptionUtils.WriteFormat.GCM, "k2");
+        String encrypted = otherKey.encrypt(CARD_NUMBER);
+
+        assertThatThrownBy(() -> gcm.decrypt(encrypted))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Decryption failed")
+                .hasRootCauseMessage("Value was encrypted with unknown key k2");
+    }
+
+    @Test
+    void rejectsAGcmValueWithATamperedTag() {
+        String encrypted = gcm.encrypt(CARD_NUMBER);
+        int payloadStart = encrypted.lastIndexOf('$') + 1;
+        byte[] payload = Base64.getDecoder().decode(encrypted.substring(payloadStart));
+        payload[payload.length - 1] ^= 1;
+        String tampered = encrypted.substring(0, payloadStart) + Base64.getEncoder().encodeToString(payload);
+
+        assertThatThrownBy(() -> gcm.decrypt(tampered))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Decryption failed");
+    }
+
+    private static EncryptionUtils newEncryptionUtils(EncryptionUtils.WriteFormat writeFormat, String keyId) {
+        EncryptionUtils encryptionUtils = new EncryptionUtils();
+        ReflectionTestUtils.setField(encryptionUtils, "encryptionKey", KEY);
+        ReflectionTestUtils.setField(encryptionUtils, "keyId", keyId);
+        ReflectionTestUtils.setField(encryptionUtils, "writeFormat", writeFormat);
+        ReflectionTestUtils.setField(encryptionUtils, "blindIndexKey", "unit-test-blind-index-key");
+        encryptionUtils.init();
+        return encryptionUtils;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionIdGeneratorTest {
+
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final long MAX_TIMESTAMP = (1L << 41) - 1;
+    private static final String ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+
+    private static final long NOW = EPOCH_MILLIS + 86_400_000L;
+
+    @Test
+    void staysStrictlyIncreasingWhenTheSequenceOverflowsWithinOneMillisecond() {
+        ManualClockGenerator generator = new ManualClockGenerator(7, NOW);
+
+        long previous = generator.nextId();
+        for (int i = 1; i < 3 * 4096; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+
+        // 4096 IDs fill the millisecond; the next one borrows the following millisecond
+        ManualClockGenerator fresh = new ManualClockGenerator(7, NOW);
+        for (int i = 0; i < 4095; i++) {
+            fresh.nextId();
+        }
+        long last = fresh.nextId();
+        long borrowed = fresh.nextId();
+        assertThat(timestamp(last)).isEqualTo(NOW - EPOCH_MILLIS);
+        assertThat(sequence(last)).isEqualTo(4095);
+        assertThat(timestamp(borrowed)).isEqualTo(NOW - EPOCH_MILLIS + 1);
+        assertThat(sequence(borrowed)).isZero();
+    }
+
+    @Test
+    void staysStrictlyIncreasingWhenTheClockStepsBack() {
+        ManualClockGenerator generator = new ManualClockGenerator(7, NOW);
+        long beforeStep = generator.nextId();
+
+        generator.now = NOW - 5_000;
+        long afterStep = generator.nextId();
+        long next = generator.nextId();
+
+        assertThat(afterStep).isGreaterThan(beforeStep);
+        assertThat(next).isGreaterThan(afterStep);
+        assertThat(timestamp(afterStep)).isEqualTo(NOW - EPOCH_MILLIS);
+
+        // Once the clock passes the borrowed time again, IDs follow the clock
+        generator.now = NOW + 1_000;
+        long caughtUp = generator.nextId();
+        assertThat(caughtUp).isGreaterThan(next);
+        assertThat(timestamp(caughtUp)).isEqualTo(NOW - EPOCH_MILLIS + 1_000);
+    }
+
+    @Test
+    void encodesToAFixedWidthThatSortsLikeTheNumbers() {
+        ManualClockGenerator generator = new ManualClockGenerator(1023, EPOCH_MILLIS);
+        List<String> ids = new ArrayList<>();
+        List<Long> expected = new ArrayList<>();
+        for (long millis : new long[]{1, 31, 32, 1L << 20, 1L << 35, MAX_TIMESTAMP}) {
+            generator.now = EPOCH_MILLIS + millis;
+            ids.add(generator.generateTransactionId());
+            expected.add((millis << 22) | (1023L << 12));
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            String id = ids.get(i);
+            assertThat(id).startsWith("TXN-").hasSize(17);
+            assertThat(decode(id.substring(4))).isEqualTo(expected.get(i));
+        }
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    void lexicographicOrderMatchesGenerationOrder() {
+        ManualClockGenerator generator = new ManualClockGenerator(3, NOW);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            generator.now += ThreadLocalRandom.current().nextInt(-2, 50);
+            ids.add(generator.generateReferenceNumber());
+        }
+
+        assertThat(ids).allSatisfy(id -> assertThat(id).startsWith("REF-").hasSize(17));
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        long previous = -1;
+        for (String id : ids) {
+            long value = decode(id.substring(4));
+            assertThat(value).isGreaterThan(previous);
+            previous = value;
+        }
+    }
+
+    @Test
+    void concurrentCallersNeverGetTheSameId() throws Exception {
+        TransactionIdGenerator generator = new TransactionIdGenerator(5);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    long previous = -1;
+                    for (int i = 0; i < 50_000; i++) {
+                        long id = generator.nextId();
+                        // Each caller sees its own IDs increase as well
+                        assertThat(id).isGreaterThan(previous);
+                        ids.add(id);
+                        previous = id;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(8 * 50_000);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 512, 1023})
+    void reflectsTheNodeIdInItsBits(long nodeId) {
+        ManualClockGenerator generator = new ManualClockGenerator(nodeId, NOW);
+        for (int i = 0; i < 5000; i++) {
+            long id = generator.nextId();
+            assertThat((id >>> 12) & 1023).isEqualTo(nodeId);
+        }
+        assertThat(decode(generator.generateBlockRequestId().substring(4)) >>> 12 & 1023).isEqualTo(nodeId);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {-1, 1024})
+    void rejectsNodeIdsThatDoNotFitTenBits(long nodeId) {
+        assertThatThrownBy(() -> new TransactionIdGenerator(nodeId))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long timestamp(long id) {
+        return id >>> 22;
+    }
+
+    private static long sequence(long id) {
+        return id & 4095;
+    }
+
+    private static long decode(String encoded) {
+        long value = 0;
+        for (char c : encoded.toCharArray()) {
+            int digit = ALPHABET.indexOf(c);
+            assertThat(digit).as("character %s", c).isNotNegative();
+            value = (value << 5) | digit;
+        }
+        return value;
+    }
+
+    private static class ManualClockGenerator extends TransactionIdGenerator {
+
+        private long now;
+
+        ManualClockGenerator(long nodeId, long now) {
+            super(nodeId);
+            this.now = now;
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+}